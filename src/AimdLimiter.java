@@ -0,0 +1,132 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Adaptive concurrency limit in the style of TCP congestion control. Each request that comes back while
+ * latency stays flat grows the limit by 1/limit, about one more slot per round trip. An overload signal
+ * (429, 503, a timeout, or recent latency well above the long-term average) halves it.
+ */
+public class AimdLimiter {
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BACKOFF_RATIO = 0.5;
+    // Single pages vary a lot in size, so latency is judged on a short average against a long one
+    private static final double SHORT_WEIGHT = 0.1;
+    private static final double LONG_WEIGHT = 0.01;
+    private static final int WARMUP_SAMPLES = 20;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private int inFlight;
+    private double shortLatencyNanos;
+    private double longLatencyNanos;
+    private int samples;
+    private long lastBackoffNanos;
+    private int backoffs;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public void acquire() {
+        lock.lock();
+        try {
+            while (inFlight >= (int) limit) {
+                slotFreed.awaitUninterruptibly();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            if (samples++ == 0) {
+                shortLatencyNanos = latencyNanos;
+                longLatencyNanos = latencyNanos;
+            }
+            shortLatencyNanos += (latencyNanos - shortLatencyNanos) * SHORT_WEIGHT;
+            longLatencyNanos += (latencyNanos - longLatencyNanos) * LONG_WEIGHT;
+            if (samples > WARMUP_SAMPLES && shortLatencyNanos > longLatencyNanos * LATENCY_TOLERANCE) {
+                backOff();
+            } else if (inFlight >= (int) limit - 1) {
+                // Only grow while the limit is actually used, an idle host does not earn more slots
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onOverload() {
+        lock.lock();
+        try {
+            backOff();
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Releases a slot without feeding the outcome into the limit, e.g. for a 404
+    public void onIgnore() {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff() {
+        // Requests already in flight when the limit dropped report the same congestion, count it once per round trip
+        long now = System.nanoTime();
+        long window = samples == 0 ? TimeUnit.SECONDS.toNanos(1) : (long) longLatencyNanos;
+        if (now - lastBackoffNanos < window) {
+            return;
+        }
+        lastBackoffNanos = now;
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+        backoffs++;
+    }
+
+    private void release() {
+        inFlight--;
+        slotFreed.signalAll();
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int backoffs() {
+        lock.lock();
+        try {
+            return backoffs;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
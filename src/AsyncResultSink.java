@@ -0,0 +1,146 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Encodes links on a background thread and writes them in large chunks. Crawl threads only enqueue, and block
+ * when the writer falls a full queue behind, so memory stays flat however many links the crawl finds.
+ * Chunks always end on a record boundary, which keeps text output on stdout from tearing mid line.
+ */
+public class AsyncResultSink implements ResultSink {
+    private static final int QUEUE_CAPACITY = 8192;
+    private static final int FLUSH_BYTES = 64 * 1024;
+    private static final Entry END = new Entry(null, null);
+
+    private record Entry(LinkRecord link, String sourceUrl) {
+    }
+
+    private final ResultFormat format;
+    private final OutputStream out;
+    private final boolean closeOutput;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Links that reached the output stream, counted by the writer after each successful flush
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    public AsyncResultSink(ResultFormat format, OutputStream out, boolean closeOutput) {
+        this.format = format;
+        this.out = out;
+        this.closeOutput = closeOutput;
+        this.writer = new Thread(this::drain, "result-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void write(LinkRecord link, String sourceUrl) {
+        if (closed) {
+            throw new IllegalStateException("Result sink is closed");
+        }
+        if (!failed) {
+            put(new Entry(link, sourceUrl));
+        }
+    }
+
+    private void put(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public long written() {
+        return written.get();
+    }
+
+    private void drain() {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(FLUSH_BYTES * 2);
+        DataOutputStream data = new DataOutputStream(buffer);
+        List<Entry> batch = new ArrayList<>(QUEUE_CAPACITY);
+        long index = 0;
+        long flushed = 0;
+        try {
+            format.writeHeader(data);
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+                for (Entry entry : batch) {
+                    if (entry == END) {
+                        flush(buffer);
+                        written.addAndGet(index - flushed);
+                        return;
+                    }
+                    format.write(data, index++, entry.link(), entry.sourceUrl());
+                    if (buffer.size() >= FLUSH_BYTES) {
+                        flush(buffer);
+                        written.addAndGet(index - flushed);
+                        flushed = index;
+                    }
+                }
+                batch.clear();
+                // Nothing else waiting, hand over what there is rather than holding it back
+                if (queue.isEmpty()) {
+                    flush(buffer);
+                    written.addAndGet(index - flushed);
+                    flushed = index;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing results: " + e.getMessage());
+            failed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // Keep taking entries until close, so crawl threads already blocked in put never hang on a dead writer
+        try {
+            while (!closed || !queue.isEmpty()) {
+                queue.poll(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(ByteArrayOutputStream buffer) throws IOException {
+        if (buffer.size() > 0) {
+            buffer.writeTo(out);
+            buffer.reset();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!failed) {
+            put(END);
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (closeOutput) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.println("Error closing results: " + e.getMessage());
+            }
+        }
+    }
+}
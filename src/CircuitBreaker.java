@@ -0,0 +1,78 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-host circuit breaker. After enough consecutive failures the circuit opens and requests to the host
+ * fail immediately instead of tying up a pool thread. After the cooldown one trial request is let through,
+ * its outcome closes the circuit again or restarts the cooldown.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_COOLDOWN_SECONDS = 30;
+
+    private enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private final String host;
+    private final int failureThreshold;
+    private final long cooldownNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean trialInFlight;
+    private int timesOpened;
+
+    public CircuitBreaker(String host, int failureThreshold, long cooldownSeconds) {
+        this.host = host;
+        this.failureThreshold = failureThreshold;
+        this.cooldownNanos = TimeUnit.SECONDS.toNanos(cooldownSeconds);
+    }
+
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= cooldownNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+            return true;
+        }
+        return state == State.CLOSED;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    // A request that ended without telling whether the host works gives its trial back
+    public synchronized void release() {
+        trialInFlight = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            trialInFlight = false;
+            timesOpened++;
+            System.err.println("Circuit opened for " + host + " after " + consecutiveFailures + " consecutive failures");
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public synchronized int timesOpened() {
+        return timesOpened;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return host + ": " + state + ", opened " + timesOpened + " times";
+    }
+}
@@ -0,0 +1,10 @@
+import java.io.IOException;
+
+// Thrown without contacting the host while its circuit breaker is open
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String url) {
+        super("Circuit open, not fetching " + url);
+    }
+}
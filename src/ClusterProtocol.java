@@ -0,0 +1,78 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Messages between the crawl coordinator and its workers, all over Unix domain sockets in one cluster
+ * directory. Each message is a type byte followed by its fields written with DataOutputStream.
+ */
+final class ClusterProtocol {
+    // worker -> coordinator: int worker id, sent once the worker accepts links from its peers
+    static final byte HELLO = 1;
+    // coordinator -> worker: UTF canonical url, queued at depth 0
+    static final byte SEED = 2;
+    // coordinator -> worker, answered with STATUS: boolean idle, long links sent, long links received
+    static final byte STATUS = 3;
+    // coordinator -> worker, answered with DONE: long pages fetched, long links found, int failed pages
+    static final byte STOP = 4;
+    static final byte DONE = 5;
+    // worker -> worker: int count, then count times short depth and UTF url
+    static final byte LINKS = 6;
+
+    private static final long CONNECT_TIMEOUT_MS = 30_000;
+
+    private ClusterProtocol() {
+    }
+
+    static Path coordinatorSocket(Path clusterDir) {
+        return clusterDir.resolve("coordinator.sock");
+    }
+
+    static Path workerSocket(Path clusterDir, int worker) {
+        return clusterDir.resolve("worker-" + worker + ".sock");
+    }
+
+    static ServerSocketChannel listen(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        return server;
+    }
+
+    // The other side may still be starting, so connecting is retried until the timeout
+    static SocketChannel connect(Path socket) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (true) {
+            try {
+                return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    static DataInputStream input(SocketChannel channel) {
+        return new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 1 << 16));
+    }
+
+    static DataOutputStream output(SocketChannel channel) {
+        return new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+    }
+}
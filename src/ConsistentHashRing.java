@@ -0,0 +1,38 @@
+import java.util.Arrays;
+
+/**
+ * Maps canonical urls to the worker that owns them. Every worker is placed on a 64-bit ring at many
+ * virtual points and a url belongs to the first point at or after its fingerprint, so the url space splits
+ * evenly and adding a worker moves only about 1/n of the urls.
+ */
+public class ConsistentHashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private final long[] points;
+    private final int[] owners;
+
+    public ConsistentHashRing(int workers, int virtualNodes) {
+        long[][] placed = new long[workers * virtualNodes][];
+        for (int worker = 0; worker < workers; worker++) {
+            for (int virtual = 0; virtual < virtualNodes; virtual++) {
+                placed[worker * virtualNodes + virtual] =
+                        new long[]{UrlFingerprint.of("worker-" + worker + "#" + virtual), worker};
+            }
+        }
+        Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[placed.length];
+        this.owners = new int[placed.length];
+        for (int i = 0; i < placed.length; i++) {
+            points[i] = placed[i][0];
+            owners[i] = (int) placed[i][1];
+        }
+    }
+
+    public int owner(String canonicalUrl) {
+        int index = Arrays.binarySearch(points, UrlFingerprint.of(canonicalUrl));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+}
@@ -0,0 +1,280 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Crash-safe progress of a crawl in a directory: every finished page and its links are appended to a log.
+ * Every so many pages the log is renamed aside and a fresh one started, and a background thread folds the
+ * old log into a compacted snapshot while the crawl keeps appending to the new one.
+ *
+ * On restart the saved pages are handed back instead of being fetched. The engine runs its usual loop over
+ * them, so the frontier and the visited set come back exactly as they were, and the results are emitted
+ * again without a single request for pages that were done.
+ */
+public class CrawlCheckpoint implements AutoCloseable {
+    public static final int DEFAULT_SNAPSHOT_EVERY = 10_000;
+
+    private static final String LOG = "pages.log";
+    private static final String OLD_LOG = "pages.log.old";
+    private static final String SNAPSHOT = "pages.snapshot";
+    private static final String CONFIG = "crawl.config";
+
+    private final Path directory;
+    private final int snapshotEvery;
+    private final Map<String, List<String[]>> saved = new ConcurrentHashMap<>();
+    private DataOutputStream log;
+    private int sinceSnapshot;
+    private int savedPages;
+    // Folds OLD_LOG into the snapshot, null when no compaction has been started
+    private Thread compaction;
+
+    /**
+     * Opens the checkpoint of a crawl with this configuration. A checkpoint holding pages of a crawl with a
+     * different configuration would replay the wrong pages; it is left alone and opening fails.
+     */
+    public CrawlCheckpoint(Path directory, String crawlConfig, int snapshotEvery) throws IOException {
+        this.directory = directory;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(directory);
+        Path configFile = directory.resolve(CONFIG);
+        if (Files.exists(configFile) && !Files.readString(configFile).equals(crawlConfig) && holdsPages()) {
+            throw new IOException("Checkpoint in " + directory + " is for another crawl, see " + configFile
+                    + "; remove it or pass another --checkpoint directory");
+        }
+        Files.writeString(configFile, crawlConfig);
+
+        read(directory.resolve(SNAPSHOT), saved);
+        read(directory.resolve(OLD_LOG), saved);
+        read(directory.resolve(LOG), saved);
+        savedPages = saved.size();
+        // A torn record at the end of the log was dropped while reading, compacting removes it for good
+        compact();
+    }
+
+    public static CrawlCheckpoint fromArgs(String[] args, CrawlConfig config) throws IOException {
+        String directory = CrawlConfig.option(args, "checkpoint", null);
+        if (directory == null) {
+            return null;
+        }
+        int snapshotEvery = Integer.parseInt(CrawlConfig.option(args, "snapshot-every",
+                String.valueOf(DEFAULT_SNAPSHOT_EVERY)));
+        return new CrawlCheckpoint(Path.of(directory), fingerprint(args, config), snapshotEvery);
+    }
+
+    // Everything that decides which pages a crawl fetches and which links it keeps, connection caps and
+    // thread counts only change how fast
+    static String fingerprint(String[] args, CrawlConfig config) {
+        return config.scope() + ", linkSource=" + CrawlConfig.option(args, "link-source", "html")
+                + ", order=" + CrawlConfig.option(args, "order", "breadth-first")
+                + ", linkFilter=" + LinkFilter.fromArgs(args);
+    }
+
+    private boolean holdsPages() throws IOException {
+        for (String file : new String[]{SNAPSHOT, OLD_LOG, LOG}) {
+            Path path = directory.resolve(file);
+            if (Files.exists(path) && Files.size(path) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Pages recovered when the checkpoint was opened
+    public int savedPages() {
+        return savedPages;
+    }
+
+    /**
+     * Links of a page finished before the restart, as {href, anchor} pairs, or null when it still has to be
+     * fetched. Each saved page is handed out once.
+     */
+    public List<String[]> take(String url, int depth) {
+        return saved.remove(key(url, depth));
+    }
+
+    // Only appends and, every snapshotEvery pages, renames the log, the folding happens on another thread
+    public synchronized void pageDone(String url, int depth, List<LinkRecord> links) throws IOException {
+        writeRecord(log, url, depth, links.stream().map(link -> new String[]{link.targetHref(), link.anchorText()})
+                .collect(Collectors.toList()));
+        log.flush();
+        // While the last compaction still runs the log just keeps growing until the next page
+        if (++sinceSnapshot >= snapshotEvery && (compaction == null || !compaction.isAlive())) {
+            rotate();
+        }
+    }
+
+    private void rotate() throws IOException {
+        log.close();
+        Files.move(directory.resolve(LOG), directory.resolve(OLD_LOG), StandardCopyOption.ATOMIC_MOVE);
+        log = newLog();
+        sinceSnapshot = 0;
+        compaction = new Thread(() -> {
+            try {
+                fold(directory.resolve(OLD_LOG));
+                Files.delete(directory.resolve(OLD_LOG));
+            } catch (IOException e) {
+                // The old log stays and is read on restart, the next rotation waits for it to be folded
+                System.err.println("Error compacting checkpoint in " + directory + ": " + e.getMessage());
+            }
+        }, "checkpoint-compaction");
+        compaction.setDaemon(true);
+        compaction.start();
+    }
+
+    // Folds every log into a new snapshot on the calling thread, then starts an empty log
+    private synchronized void compact() throws IOException {
+        awaitCompaction();
+        if (log != null) {
+            log.close();
+        }
+        fold(directory.resolve(OLD_LOG), directory.resolve(LOG));
+        Files.deleteIfExists(directory.resolve(OLD_LOG));
+        log = newLog();
+        sinceSnapshot = 0;
+    }
+
+    private void awaitCompaction() {
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private DataOutputStream newLog() throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(directory.resolve(LOG).toFile(), false), 1 << 16));
+    }
+
+    // Writes the snapshot and the logs into a new snapshot, which replaces the old one in one rename
+    private void fold(Path... logs) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        Path next = directory.resolve(SNAPSHOT + ".tmp");
+        Set<String> written = new HashSet<>();
+        try (FileOutputStream file = new FileOutputStream(next.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            // Log records that were already folded in before a crash come back as duplicates
+            RecordConsumer copy = (url, depth, links) -> {
+                if (written.add(key(url, depth))) {
+                    writeRecord(out, url, depth, links);
+                }
+            };
+            read(snapshot, copy);
+            for (Path path : logs) {
+                read(path, copy);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(next, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compact();
+        log.close();
+    }
+
+    private static String key(String url, int depth) {
+        return depth + " " + url;
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(String url, int depth, List<String[]> links) throws IOException;
+    }
+
+    // Record: int length, payload, int CRC32 of the payload
+    private static void writeRecord(DataOutputStream out, String url, int depth, List<String[]> links)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + links.size() * 64);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeInt(depth);
+        writeString(payload, url);
+        payload.writeInt(links.size());
+        for (String[] link : links) {
+            writeString(payload, link[0]);
+            writeString(payload, link[1]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void read(Path path, Map<String, List<String[]>> into) throws IOException {
+        read(path, (url, depth, links) -> into.put(key(url, depth), links));
+    }
+
+    // Stops at the first incomplete or corrupt record, which is what a crash in the middle of a write leaves
+    private static void read(Path path, RecordConsumer consumer) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length < 0 || length > 64 << 20) {
+                        return;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        return;
+                    }
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        return;
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                int depth = record.readInt();
+                String url = readString(record);
+                int count = record.readInt();
+                List<String[]> links = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    links.add(new String[]{readString(record), readString(record)});
+                }
+                consumer.accept(url, depth, links);
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+}
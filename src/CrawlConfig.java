@@ -0,0 +1,149 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CrawlConfig {
+    public static final String DEFAULT_SEED = "https://pl.wikipedia.org/wiki/Java";
+    public static final int UNLIMITED = -1;
+
+    private final List<String> seedUrls;
+    private final int maxDepth;
+    private final int[] fanOut;
+    private final int pageBudget;
+    private final int maxConnections;
+    private final int hostConnections;
+
+    /**
+     * @param seedUrl    page fetched at depth 0
+     * @param maxDepth   number of page levels to fetch (the original phases are depth 3)
+     * @param fanOut     links kept per page at each depth, the last value repeats for deeper levels
+     * @param pageBudget total number of pages fetched over the whole crawl, or UNLIMITED
+     */
+    public CrawlConfig(String seedUrl, int maxDepth, int[] fanOut, int pageBudget) {
+        this(seedUrl, maxDepth, fanOut, pageBudget, UNLIMITED);
+    }
+
+    /**
+     * @param maxConnections cap on fetches in flight at once, independent of how many threads wait for one
+     */
+    public CrawlConfig(String seedUrl, int maxDepth, int[] fanOut, int pageBudget, int maxConnections) {
+        this(List.of(seedUrl), maxDepth, fanOut, pageBudget, maxConnections);
+    }
+
+    /**
+     * @param seedUrls       pages fetched at depth 0, on one or several hosts
+     * @param maxConnections cap on fetches in flight at once over all hosts
+     */
+    public CrawlConfig(List<String> seedUrls, int maxDepth, int[] fanOut, int pageBudget, int maxConnections) {
+        this(seedUrls, maxDepth, fanOut, pageBudget, maxConnections, UNLIMITED);
+    }
+
+    /**
+     * @param hostConnections cap on fetches in flight at once to each host, also how many of a host's pages
+     *                        a pipelined crawl hands to the strategy at once
+     */
+    public CrawlConfig(List<String> seedUrls, int maxDepth, int[] fanOut, int pageBudget, int maxConnections,
+                       int hostConnections) {
+        if (seedUrls.isEmpty()) {
+            throw new IllegalArgumentException("At least one seed is needed");
+        }
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be at least 1");
+        }
+        if (fanOut.length == 0) {
+            throw new IllegalArgumentException("fanOut needs at least one value");
+        }
+        this.seedUrls = List.copyOf(seedUrls);
+        this.maxDepth = maxDepth;
+        this.fanOut = fanOut.clone();
+        this.pageBudget = pageBudget;
+        this.maxConnections = maxConnections;
+        this.hostConnections = hostConnections;
+    }
+
+    // Same workload as the original three phases: 50 links, then 10 per page, then everything
+    public static CrawlConfig defaults() {
+        return new CrawlConfig(DEFAULT_SEED, 3, new int[]{50, 10, UNLIMITED}, UNLIMITED);
+    }
+
+    public static CrawlConfig fromArgs(String[] args) {
+        CrawlConfig defaults = defaults();
+        List<String> seeds = options(args, "seed");
+        int depth = Integer.parseInt(option(args, "depth", String.valueOf(defaults.maxDepth)));
+        int budget = Integer.parseInt(option(args, "budget", String.valueOf(defaults.pageBudget)));
+        int connections = Integer.parseInt(option(args, "max-connections", String.valueOf(defaults.maxConnections)));
+        int perHost = Integer.parseInt(option(args, "host-connections", String.valueOf(defaults.hostConnections)));
+        String fanOutOption = option(args, "fan-out", null);
+        int[] fanOut = fanOutOption == null
+                ? defaults.fanOut
+                : Arrays.stream(fanOutOption.split(",")).mapToInt(v -> Integer.parseInt(v.trim())).toArray();
+        return new CrawlConfig(seeds.isEmpty() ? defaults.seedUrls : seeds, depth, fanOut, budget, connections,
+                perHost);
+    }
+
+    // Reads "--name=value" from the command line
+    public static String option(String[] args, String name, String defaultValue) {
+        String prefix = "--" + name + "=";
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                return arg.substring(prefix.length());
+            }
+        }
+        return defaultValue;
+    }
+
+    // Every value of a repeatable option, e.g. --seed=a --seed=b
+    public static List<String> options(String[] args, String name) {
+        String prefix = "--" + name + "=";
+        List<String> values = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith(prefix)) {
+                values.add(arg.substring(prefix.length()));
+            }
+        }
+        return values;
+    }
+
+    // The first seed
+    public String seedUrl() {
+        return seedUrls.get(0);
+    }
+
+    public List<String> seedUrls() {
+        return seedUrls;
+    }
+
+    public int maxDepth() {
+        return maxDepth;
+    }
+
+    public int fanOut(int depth) {
+        return fanOut[Math.min(depth, fanOut.length - 1)];
+    }
+
+    public int pageBudget() {
+        return pageBudget;
+    }
+
+    public int maxConnections() {
+        return maxConnections;
+    }
+
+    public int hostConnections() {
+        return hostConnections;
+    }
+
+    // The settings that decide which pages are crawled, without the ones that only change its speed
+    public String scope() {
+        return (seedUrls.size() == 1 ? "seed=" + seedUrls.get(0) : "seeds=" + seedUrls) +
+                ", depth=" + maxDepth + ", fanOut=" + Arrays.toString(fanOut) +
+                ", budget=" + (pageBudget == UNLIMITED ? "unlimited" : pageBudget);
+    }
+
+    @Override
+    public String toString() {
+        return scope() +
+                ", maxConnections=" + (maxConnections == UNLIMITED ? "unlimited" : maxConnections) +
+                ", hostConnections=" + (hostConnections == UNLIMITED ? "unlimited" : hostConnections);
+    }
+}
@@ -0,0 +1,169 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Runs a crawl split over several worker processes on this machine. The coordinator starts the workers,
+ * hands the seed to its owner and polls every worker until the crawl is over: all of them idle and every
+ * link sent between them received, in two polls in a row with the same counts, so nothing was in transit.
+ *
+ * Example: --workers=4 --synthetic=true --wiki-latency-ms=20 --pool-size=8 --depth=4 --fan-out=20
+ * With --synthetic the crawl runs against a SyntheticWiki served by the coordinator, the wiki options of
+ * ScraperBenchmark apply. Other options are passed on to the workers; file options get a per-worker suffix.
+ */
+public class CrawlCoordinator {
+    private static final long POLL_INTERVAL_MS = 20;
+    // Options naming a file or directory, each worker writes its own
+    private static final List<String> PER_WORKER_PATHS =
+            List.of("output", "checkpoint", "graph", "dead-letters", "metrics-json", "record");
+
+    private record WorkerStatus(boolean idle, long sent, long received) {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int workers = Integer.parseInt(CrawlConfig.option(args, "workers", "2"));
+        boolean synthetic = Boolean.parseBoolean(CrawlConfig.option(args, "synthetic", "false"));
+        Path clusterDir = CrawlConfig.option(args, "cluster-dir", null) == null
+                ? Files.createTempDirectory("crawl-cluster")
+                : Files.createDirectories(Path.of(CrawlConfig.option(args, "cluster-dir", null)));
+
+        SyntheticWiki wiki = synthetic ? SyntheticWiki.fromArgs(args) : null;
+        String[] crawlArgs = wiki == null ? args
+                : Stream.concat(Stream.of("--seed=" + wiki.pageUrl(0)), Arrays.stream(args)
+                        .filter(arg -> !arg.startsWith("--seed="))).toArray(String[]::new);
+        CrawlConfig config = CrawlConfig.fromArgs(crawlArgs);
+        System.out.println("Distributed crawl over " + workers + " workers (" + config + "), cluster in " + clusterDir);
+        if (wiki != null) {
+            System.out.println("Synthetic wiki: " + wiki);
+        }
+
+        try (ServerSocketChannel server = ClusterProtocol.listen(ClusterProtocol.coordinatorSocket(clusterDir))) {
+            List<Process> processes = new ArrayList<>();
+            if (Boolean.parseBoolean(CrawlConfig.option(args, "spawn", "true"))) {
+                for (int worker = 0; worker < workers; worker++) {
+                    processes.add(spawn(worker, workers, clusterDir, config, crawlArgs));
+                }
+            }
+
+            SocketChannel[] channels = new SocketChannel[workers];
+            DataInputStream[] inputs = new DataInputStream[workers];
+            DataOutputStream[] outputs = new DataOutputStream[workers];
+            for (int connected = 0; connected < workers; connected++) {
+                SocketChannel channel = server.accept();
+                DataInputStream in = ClusterProtocol.input(channel);
+                if (in.readByte() != ClusterProtocol.HELLO) {
+                    throw new IOException("Worker did not say hello");
+                }
+                int worker = in.readInt();
+                channels[worker] = channel;
+                inputs[worker] = in;
+                outputs[worker] = ClusterProtocol.output(channel);
+            }
+
+            long start = System.nanoTime();
+            ConsistentHashRing ring = new ConsistentHashRing(workers, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+            for (String seedUrl : config.seedUrls()) {
+                String seed = UrlCanonicalizer.canonicalize(seedUrl);
+                if (seed == null) {
+                    continue;
+                }
+                DataOutputStream seedOwner = outputs[ring.owner(seed)];
+                seedOwner.writeByte(ClusterProtocol.SEED);
+                seedOwner.writeUTF(seed);
+                seedOwner.flush();
+            }
+
+            WorkerStatus previous = null;
+            while (true) {
+                Thread.sleep(POLL_INTERVAL_MS);
+                WorkerStatus total = poll(inputs, outputs);
+                if (total.idle() && total.sent() == total.received() && total.equals(previous)) {
+                    break;
+                }
+                previous = total;
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            long pages = 0;
+            long links = 0;
+            int failed = 0;
+            for (int worker = 0; worker < workers; worker++) {
+                outputs[worker].writeByte(ClusterProtocol.STOP);
+                outputs[worker].flush();
+                if (inputs[worker].readByte() != ClusterProtocol.DONE) {
+                    throw new IOException("Worker " + worker + " did not stop cleanly");
+                }
+                long workerPages = inputs[worker].readLong();
+                long workerLinks = inputs[worker].readLong();
+                int workerFailed = inputs[worker].readInt();
+                System.out.printf("Worker %d: %d pages, %d links, %d failed%n", worker, workerPages, workerLinks,
+                        workerFailed);
+                pages += workerPages;
+                links += workerLinks;
+                failed += workerFailed;
+                channels[worker].close();
+            }
+            System.out.printf("Crawled %d pages with %d links in %.2f s, %.1f pages/s, %d pages failed, %d links "
+                    + "passed between workers%n", pages, links, seconds, pages / seconds, failed, previous.sent());
+            for (Process process : processes) {
+                process.waitFor();
+            }
+        } finally {
+            Files.deleteIfExists(ClusterProtocol.coordinatorSocket(clusterDir));
+            if (wiki != null) {
+                wiki.close();
+            }
+        }
+    }
+
+    private static WorkerStatus poll(DataInputStream[] inputs, DataOutputStream[] outputs) throws IOException {
+        boolean idle = true;
+        long sent = 0;
+        long received = 0;
+        for (int worker = 0; worker < outputs.length; worker++) {
+            outputs[worker].writeByte(ClusterProtocol.STATUS);
+            outputs[worker].flush();
+            if (inputs[worker].readByte() != ClusterProtocol.STATUS) {
+                throw new IOException("Worker " + worker + " sent an unexpected answer");
+            }
+            idle &= inputs[worker].readBoolean();
+            sent += inputs[worker].readLong();
+            received += inputs[worker].readLong();
+        }
+        return new WorkerStatus(idle, sent, received);
+    }
+
+    // Same JVM and class path as the coordinator, output goes to worker-N.log in the cluster directory
+    private static Process spawn(int worker, int workers, Path clusterDir, CrawlConfig config, String[] args)
+            throws IOException {
+        List<String> command = new ArrayList<>(List.of(
+                Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"),
+                "CrawlWorker",
+                "--worker-id=" + worker,
+                "--workers=" + workers,
+                "--cluster-dir=" + clusterDir));
+        // Options put first win, so these override what was passed on the command line
+        if (config.pageBudget() != CrawlConfig.UNLIMITED) {
+            command.add("--budget=" + (config.pageBudget() + workers - 1) / workers);
+        }
+        for (String name : PER_WORKER_PATHS) {
+            String path = CrawlConfig.option(args, name, null);
+            if (path != null) {
+                command.add("--" + name + "=" + path + ".worker-" + worker);
+            }
+        }
+        command.addAll(Arrays.asList(args));
+        File log = clusterDir.resolve("worker-" + worker + ".log").toFile();
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start();
+    }
+}
@@ -0,0 +1,1002 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+public class CrawlEngine {
+    private final CrawlConfig config;
+    private final CrawlStrategy strategy;
+    private final Frontier frontier;
+    private final List<LinkRecord> allLinks = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Integer, String> pageUrls = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPageId = new AtomicInteger();
+    private final Semaphore connections;
+    private final HostPartitions hosts;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private boolean pipelined;
+    private boolean streamingExtraction;
+    private PageFetcher fetcher = new JsoupFetcher();
+    private final DeadLetterLog deadLetters = new DeadLetterLog();
+    private Path deadLetterFile;
+    private final CrawlMetrics metrics = new CrawlMetrics();
+    private MetricsReporter metricsReporter;
+    private ResultSink resultSink;
+    private LinkGraphBuilder graphBuilder;
+    private Path graphFile;
+    private String[] analysisArgs;
+    private CrawlCheckpoint checkpoint;
+    private LinkRouter router;
+    private LinkFilter linkFilter = LinkFilter.DEFAULT;
+    private MediaWikiApi api;
+    private ParseStage parseStage;
+    private PriorityFrontier bestFirst;
+    private UrlScorer scorer;
+    private final InDegreeCounter inDegrees = new InDegreeCounter(1 << 16);
+    private PageMetadataStore recrawl;
+    private Path recrawlDiffFile;
+    private boolean expandChangedOnly;
+    // Pages whose links are the same as in the last crawl, with --recrawl-expand=changed they are not followed
+    private final Set<Integer> unchangedPages = ConcurrentHashMap.newKeySet();
+
+    // Pipelined mode state: links per page at the shallowest depth it was fetched, and tasks still running
+    private final Map<String, PageLinks> pageResults = new ConcurrentHashMap<>();
+    private final BlockingQueue<Runnable> callerTasks = new LinkedBlockingQueue<>();
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final CountDownLatch pipelineDone = new CountDownLatch(1);
+    // Distributed crawl: pages already written to the result sink
+    private final Set<String> emittedUrls = ConcurrentHashMap.newKeySet();
+
+    // Set by begin(), reported by finish()
+    private long runStart;
+    private ResourceMonitor monitor;
+
+    public CrawlEngine(CrawlConfig config, CrawlStrategy strategy) {
+        this(config, strategy, new VisitedUrlSet(VisitedUrlSet.DEFAULT_EXPECTED_URLS, false));
+    }
+
+    public CrawlEngine(CrawlConfig config, CrawlStrategy strategy, VisitedUrlSet visited) {
+        this.config = config;
+        this.strategy = strategy;
+        this.frontier = new Frontier(config.maxDepth(), config.pageBudget(), visited);
+        this.connections = config.maxConnections() == CrawlConfig.UNLIMITED
+                ? null
+                : new Semaphore(config.maxConnections(), true);
+        this.hosts = new HostPartitions(config.hostConnections(), Math.max(1, strategy.maxInFlight() / 2), task -> {
+            if (!strategy.execute(task)) {
+                callerTasks.add(task);
+            }
+        });
+        metrics.registerGauge("frontier_size", () -> bestFirst != null ? bestFirst.size()
+                : pipelined ? pendingTasks.get() : frontier.size());
+        metrics.registerGauge("fetches_in_flight", inFlight::get);
+        metrics.registerGauge("pages_scheduled", frontier::scheduledPages);
+        metrics.definePool(CrawlMetrics.IO_POOL,
+                () -> config.maxConnections() != CrawlConfig.UNLIMITED ? config.maxConnections()
+                        : config.hostConnections() != CrawlConfig.UNLIMITED ? config.hostConnections() * hosts.hosts()
+                        : peakInFlight.get());
+    }
+
+    // Engine configured from the command line, shared by the main methods of every approach
+    public static CrawlEngine fromArgs(String[] args, CrawlStrategy strategy) {
+        CrawlEngine engine = new CrawlEngine(CrawlConfig.fromArgs(args), strategy, VisitedUrlSet.fromArgs(args));
+        return engine.usePipeline("pipelined".equals(CrawlConfig.option(args, "mode", "phased")))
+                .useStreamingExtraction("stream".equals(CrawlConfig.option(args, "extractor", "dom")))
+                .useFetcher(PageFetcher.fromArgs(args))
+                .useLinkFilter(LinkFilter.fromArgs(args))
+                .useApi(MediaWikiApi.fromArgs(args))
+                .useParseStage(ParseStage.fromArgs(args, engine.metrics()))
+                .useBestFirst(openBestFirst(args), bestFirst(args) ? UrlScorer.fromArgs(args) : null)
+                .writeDeadLettersTo(Optional.ofNullable(CrawlConfig.option(args, "dead-letters", null))
+                        .map(Path::of)
+                        .orElse(null))
+                .reportMetrics(MetricsReporter.fromArgs(args, engine.metrics()))
+                .writeResultsTo(ResultSink.fromArgs(args))
+                .saveGraphTo(Optional.ofNullable(CrawlConfig.option(args, "graph", null))
+                        .map(Path::of)
+                        .orElse(null))
+                .analyzeGraph(Boolean.parseBoolean(CrawlConfig.option(args, "analyze", "false")) ? args : null)
+                .useCheckpoint(openCheckpoint(args, engine.config))
+                .useRecrawl(openRecrawl(args), Optional.ofNullable(CrawlConfig.option(args, "recrawl-diff", null))
+                        .map(Path::of)
+                        .orElse(null),
+                        "changed".equals(CrawlConfig.option(args, "recrawl-expand", "all")));
+    }
+
+    private static boolean bestFirst(String[] args) {
+        return "best-first".equals(CrawlConfig.option(args, "order", "breadth-first"));
+    }
+
+    private static PriorityFrontier openBestFirst(String[] args) {
+        if (!bestFirst(args)) {
+            return null;
+        }
+        try {
+            return PriorityFrontier.fromArgs(args);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the frontier spill directory", e);
+        }
+    }
+
+    private static PageMetadataStore openRecrawl(String[] args) {
+        try {
+            return PageMetadataStore.fromArgs(args);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read page metadata", e);
+        }
+    }
+
+    private static CrawlCheckpoint openCheckpoint(String[] args, CrawlConfig config) {
+        try {
+            return CrawlCheckpoint.fromArgs(args, config);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open checkpoint", e);
+        }
+    }
+
+    /**
+     * Distributed crawl: only urls the router says this engine owns are fetched here, other links are
+     * forwarded to their owner. Links arrive through offerLink, and results are emitted page by page.
+     */
+    public CrawlEngine routeLinks(LinkRouter router) {
+        this.router = router;
+        return this;
+    }
+
+    // A link forwarded by another worker, or the seed, for a distributed crawl
+    public void offerLink(String canonicalUrl, int depth) {
+        submit(canonicalUrl, depth);
+    }
+
+    // No page task of this engine is queued or running
+    public boolean idle() {
+        return pendingTasks.get() == 0;
+    }
+
+    // Finished pages are logged here, and pages saved by an earlier run of the same crawl are not fetched again
+    public CrawlEngine useCheckpoint(CrawlCheckpoint checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    /**
+     * Incremental re-crawl: pages known from the last run are requested with If-None-Match and
+     * If-Modified-Since, a 304 reuses the stored links without parsing. Added and removed links go to
+     * diffFile, by default next to the store. With changedOnly the links of unchanged pages are not followed,
+     * which only reaches pages linked from something that changed.
+     */
+    public CrawlEngine useRecrawl(PageMetadataStore recrawl, Path diffFile, boolean changedOnly) {
+        this.recrawl = recrawl;
+        this.recrawlDiffFile = diffFile == null && recrawl != null ? recrawl.defaultDiffPath() : diffFile;
+        this.expandChangedOnly = changedOnly;
+        return this;
+    }
+
+    // Runs GraphAnalytics on the link graph after the crawl, options like --top and --to are read from args
+    public CrawlEngine analyzeGraph(String[] analysisArgs) {
+        this.analysisArgs = analysisArgs;
+        if (analysisArgs != null && graphBuilder == null) {
+            collectGraph();
+        }
+        return this;
+    }
+
+    // Builds the link graph of the crawl and saves it here when run() is done, see LinkGraph.load
+    public CrawlEngine saveGraphTo(Path graphFile) {
+        this.graphFile = graphFile;
+        if (graphFile != null) {
+            collectGraph();
+        }
+        return this;
+    }
+
+    // Keeps the out-links of every page as interned ids, linkGraph() packs them once the crawl is done
+    public CrawlEngine collectGraph() {
+        this.graphBuilder = new LinkGraphBuilder();
+        return this;
+    }
+
+    public LinkGraph linkGraph() {
+        return graphBuilder == null ? null : graphBuilder.build();
+    }
+
+    // Links are handed to the sink as each depth finishes and are no longer kept, crawl() then returns an
+    // empty list. Without a sink they are collected, and run() prints them as text to stdout.
+    public CrawlEngine writeResultsTo(ResultSink resultSink) {
+        this.resultSink = resultSink;
+        return this;
+    }
+
+    // Publishes the crawl metrics while run() is crawling, null turns reporting off
+    public CrawlEngine reportMetrics(MetricsReporter metricsReporter) {
+        this.metricsReporter = metricsReporter;
+        return this;
+    }
+
+    // Pages that failed for good are written here when the crawl ends, one tab separated line each
+    public CrawlEngine writeDeadLettersTo(Path deadLetterFile) {
+        this.deadLetterFile = deadLetterFile;
+        return this;
+    }
+
+    // Reads links through the MediaWiki API in batches of titles instead of parsing each page's HTML.
+    // Batches need a whole depth at once, so the API is only used by the phased crawl.
+    public CrawlEngine useApi(MediaWikiApi api) {
+        this.api = api;
+        return this;
+    }
+
+    // Links the filter rejects are neither recorded nor fetched
+    public CrawlEngine useLinkFilter(LinkFilter linkFilter) {
+        this.linkFilter = linkFilter;
+        return this;
+    }
+
+    // The fetcher is shared by every task, its connections are closed when the crawl is done
+    public CrawlEngine useFetcher(PageFetcher fetcher) {
+        this.fetcher = fetcher;
+        return this;
+    }
+
+    // Bodies are downloaded whole and parsed on the stage's own threads, the connection is released first
+    public CrawlEngine useParseStage(ParseStage parseStage) {
+        this.parseStage = parseStage;
+        if (parseStage != null) {
+            metrics.registerGauge("parse_queue", parseStage::queued);
+        }
+        return this;
+    }
+
+    /**
+     * Best-first crawl: instead of depth by depth, the best scored urls the frontier holds are fetched next,
+     * as many at a time as there are connections. Every link of a page is kept, the fan-out limits do not
+     * apply, so the page budget decides how far the crawl gets and goes to the highest scored pages.
+     */
+    public CrawlEngine useBestFirst(PriorityFrontier bestFirst, UrlScorer scorer) {
+        this.bestFirst = bestFirst;
+        this.scorer = scorer;
+        return this;
+    }
+
+    // Pipelined mode queues every link for the next depth as soon as its page is parsed, no per-depth barrier
+    public CrawlEngine usePipeline(boolean pipelined) {
+        this.pipelined = pipelined;
+        return this;
+    }
+
+    // Streaming extraction reads links while the page downloads and stops at the depth's fan-out limit
+    public CrawlEngine useStreamingExtraction(boolean streamingExtraction) {
+        this.streamingExtraction = streamingExtraction;
+        return this;
+    }
+
+    public List<LinkRecord> crawl() {
+        for (String seed : seeds()) {
+            frontier.offer(seed, 0);
+        }
+
+        for (int depth = 0; depth < config.maxDepth(); depth++) {
+            List<String> urls = HostPartitions.interleave(frontier.pollLevel(depth));
+            if (urls.isEmpty()) {
+                break;
+            }
+
+            int currentDepth = depth;
+            // With a parse stage the strategy's threads only fetch, the pages are parsed while this thread waits
+            List<List<LinkRecord>> pages = (api == null
+                    ? join(strategy.mapAll(urls, url -> scrapePageAsync(url, currentDepth)))
+                    : strategy.mapAll(MediaWikiApi.batches(urls), batch -> scrapeBatch(batch, currentDepth)).stream()
+                            .flatMap(List::stream)
+                            .collect(Collectors.toList()))
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            pages.forEach(this::emit);
+
+            // Queue links of this depth for the next one, the frontier drops urls it has already seen
+            if (depth + 1 < config.maxDepth()) {
+                for (List<LinkRecord> links : pages) {
+                    if (!expands(links)) {
+                        continue;
+                    }
+                    long enqueueStart = System.nanoTime();
+                    for (LinkRecord link : links) {
+                        String url = target(link);
+                        if (url != null) {
+                            frontier.offer(url, depth + 1);
+                        }
+                    }
+                    metrics.recordStage(CrawlMetrics.ENQUEUE, System.nanoTime() - enqueueStart);
+                }
+            }
+
+            System.out.println("Depth " + depth + " completed. Fetched " + pages.size() + " pages, found " +
+                    pages.stream().mapToInt(List::size).sum() + " links");
+        }
+        return allLinks;
+    }
+
+    public List<LinkRecord> crawlBestFirst() {
+        for (String seed : seeds()) {
+            bestFirst.offer(seed, 0, scorer.score(seed, "", 0, 0));
+        }
+        int batchSize = config.maxConnections() == CrawlConfig.UNLIMITED
+                ? ExecutorMode.THREAD_POOL_SIZE
+                : config.maxConnections();
+        VisitedUrlSet visited = frontier.visited();
+        int fetched = 0;
+        long found = 0;
+        while (true) {
+            List<PriorityFrontier.Entry> batch = new ArrayList<>();
+            PriorityFrontier.Entry entry;
+            while (batch.size() < batchSize && (entry = bestFirst.poll()) != null) {
+                // A url is queued again when its in-degree grows, only its best entry gets fetched
+                if (!visited.contains(entry.url()) && frontier.admit(entry.url(), entry.depth())) {
+                    batch.add(entry);
+                } else if (config.pageBudget() != CrawlConfig.UNLIMITED
+                        && frontier.scheduledPages() >= config.pageBudget()) {
+                    break;
+                }
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            List<List<LinkRecord>> pages = join(strategy.mapAll(batch, page -> scrapePageAsync(page.url(), page.depth())))
+                    .stream()
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            pages.forEach(this::emit);
+
+            long enqueueStart = System.nanoTime();
+            for (List<LinkRecord> links : pages) {
+                if (!expands(links)) {
+                    continue;
+                }
+                for (LinkRecord link : links) {
+                    String url = target(link);
+                    int depth = link.depth() + 1;
+                    if (url == null || depth >= config.maxDepth()) {
+                        continue;
+                    }
+                    // Re-queued only when the count doubles, so a url has a handful of entries at most
+                    int inDegree = inDegrees.increment(url);
+                    if (Integer.bitCount(inDegree) == 1 && !visited.contains(url)) {
+                        bestFirst.offer(url, depth, scorer.score(url, link.anchorText(), depth, inDegree));
+                    }
+                }
+            }
+            metrics.recordStage(CrawlMetrics.ENQUEUE, System.nanoTime() - enqueueStart);
+            fetched += pages.size();
+            found += pages.stream().mapToInt(List::size).sum();
+        }
+        System.out.println("Best-first crawl completed. Fetched " + fetched + " pages, found " + found +
+                " links, " + bestFirst.size() + " urls left in the frontier, " + bestFirst.spilled() +
+                " spilled to disk");
+        return allLinks;
+    }
+
+    // Null futures come from tasks the strategy could not run, like null results they mean no page
+    private static List<List<LinkRecord>> join(List<CompletableFuture<List<LinkRecord>>> pages) {
+        return pages.stream()
+                .map(page -> page == null ? null : page.join())
+                .collect(Collectors.toList());
+    }
+
+    public List<LinkRecord> crawlPipelined() {
+        List<String> seeds = seeds();
+        // Held while seeding, or the first seed's pages could all finish before the next seed is submitted
+        pendingTasks.incrementAndGet();
+        seeds.forEach(seed -> submit(seed, 0));
+        if (pendingTasks.decrementAndGet() == 0) {
+            pipelineDone.countDown();
+        }
+
+        // Strategies without threads of their own hand their tasks back to this thread. A parse thread can
+        // still submit links after the queue ran empty, so it is polled until the whole crawl is done.
+        try {
+            while (pipelineDone.getCount() > 0) {
+                Runnable task = callerTasks.poll(10, TimeUnit.MILLISECONDS);
+                if (task != null) {
+                    task.run();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        List<List<LinkRecord>> pages = reconcile(seeds);
+        pages.forEach(this::emit);
+        System.out.println("Pipelined crawl completed. Fetched " + pages.size() + " pages, found " +
+                pages.stream().mapToInt(List::size).sum() + " links");
+        return allLinks;
+    }
+
+    private void emit(List<LinkRecord> links) {
+        if (graphBuilder != null && !links.isEmpty()) {
+            graphBuilder.addPage(pageUrls.get(links.get(0).sourceId()), links);
+        }
+        if (resultSink == null) {
+            allLinks.addAll(links);
+            return;
+        }
+        for (LinkRecord link : links) {
+            resultSink.write(link, pageUrls.get(link.sourceId()));
+        }
+    }
+
+    private void submit(String url, int depth) {
+        if (url == null) {
+            return;
+        }
+        if (router != null && !router.owns(url)) {
+            if (depth < config.maxDepth()) {
+                router.forward(url, depth);
+            }
+            return;
+        }
+        if (!frontier.admit(url, depth)) {
+            return;
+        }
+        // Children are counted before their parent finishes, so the count only reaches zero at the very end
+        pendingTasks.incrementAndGet();
+        // The task ends once the page is fetched, with a parse stage the rest runs on a parse thread
+        Runnable task = () -> scrapePageAsync(url, depth).whenComplete((links, failure) -> {
+            try {
+                if (links != null) {
+                    // A worker only sees part of the graph and cannot reconcile, its pages are emitted as they come.
+                    // A page fetched again for a shallower depth only has its links followed again.
+                    if (router != null) {
+                        if (emittedUrls.add(url)) {
+                            emit(links);
+                        }
+                    } else {
+                        pageResults.merge(url, new PageLinks(depth, links),
+                                (previous, fresh) -> fresh.depth < previous.depth ? fresh : previous);
+                    }
+                    if (!expands(links)) {
+                        return;
+                    }
+                    long enqueueStart = System.nanoTime();
+                    for (LinkRecord link : links) {
+                        submit(target(link), depth + 1);
+                    }
+                    metrics.recordStage(CrawlMetrics.ENQUEUE, System.nanoTime() - enqueueStart);
+                }
+            } finally {
+                if (pendingTasks.decrementAndGet() == 0) {
+                    pipelineDone.countDown();
+                }
+            }
+        });
+        hosts.execute(url, task);
+    }
+
+    private List<String> seeds() {
+        return config.seedUrls().stream()
+                .map(UrlCanonicalizer::canonicalize)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    // Canonical url of a link, relative hrefs resolved against the page it was found on
+    private String target(LinkRecord link) {
+        return UrlCanonicalizer.canonicalize(link.targetHref(), pageUrls.get(link.sourceId()));
+    }
+
+    private boolean expands(List<LinkRecord> links) {
+        return !expandChangedOnly || links.isEmpty() || !unchangedPages.contains(links.get(0).sourceId());
+    }
+
+    /**
+     * Without barriers a page can be reached through a longer path first. The visited set lets the shorter
+     * path fetch it again, and this walk from the seeds keeps only pages reachable through the final link
+     * lists, which leaves the same pages at the same depths as the phased crawl.
+     */
+    private List<List<LinkRecord>> reconcile(List<String> seeds) {
+        List<List<LinkRecord>> pages = new ArrayList<>();
+        Set<String> reached = new HashSet<>();
+        Queue<String> queue = new ArrayDeque<>();
+        for (String seed : seeds) {
+            if (pageResults.containsKey(seed) && reached.add(seed)) {
+                queue.add(seed);
+            }
+        }
+        while (!queue.isEmpty()) {
+            PageLinks page = pageResults.get(queue.poll());
+            pages.add(page.links);
+            for (LinkRecord link : page.links) {
+                String url = target(link);
+                PageLinks child = url == null ? null : pageResults.get(url);
+                if (child != null && child.depth == page.depth + 1 && reached.add(url)) {
+                    queue.add(url);
+                }
+            }
+        }
+        return pages;
+    }
+
+    private static final class PageLinks {
+        final int depth;
+        final List<LinkRecord> links;
+
+        PageLinks(int depth, List<LinkRecord> links) {
+            this.depth = depth;
+            this.links = links;
+        }
+    }
+
+    private List<LinkRecord> scrapePage(String url, int depth) {
+        return scrapePageAsync(url, depth).join();
+    }
+
+    /**
+     * Fetches the page on the calling thread. Without a parse stage it is parsed there too and the future is
+     * already done; with one the body is downloaded whole, queued for a parse thread and the calling thread
+     * is free again. The future holds null when the page failed. The Document only lives until its links are
+     * extracted, the records do not reference it.
+     */
+    private CompletableFuture<List<LinkRecord>> scrapePageAsync(String url, int depth) {
+        int pageId = nextPageId.getAndIncrement();
+        pageUrls.put(pageId, url);
+        List<LinkRecord> saved = restore(url, pageId, depth);
+        if (saved != null) {
+            return CompletableFuture.completedFuture(saved);
+        }
+        PageMetadataStore.Entry previous = recrawl == null ? null : recrawl.get(url);
+        Map<String, String> headers = previous == null ? Map.of() : previous.conditionalHeaders();
+        ResponseHandler<List<LinkRecord>> handler = recrawl == null
+                ? response -> streamingExtraction
+                        ? extractStreaming(response, pageId, depth)
+                        : extractDom(parse(response), pageId, depth)
+                : recrawlHandler(url, previous, pageId, depth);
+        CompletableFuture<List<LinkRecord>> links;
+        try {
+            if (parseStage == null) {
+                links = CompletableFuture.completedFuture(fetch(url, headers, handler));
+            } else {
+                FetchResponse downloaded = fetch(url, headers, response -> new FetchResponse(response.url(),
+                        response.statusCode(), response.headers(),
+                        new ByteArrayInputStream(response.body().readAllBytes())));
+                links = parseStage.submit(() -> handler.handle(downloaded));
+            }
+        } catch (IOException | RuntimeException e) {
+            links = CompletableFuture.failedFuture(e);
+        }
+        return links.handle((result, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                // Transient errors were already retried by the fetcher, whatever arrives here is final
+                System.err.println("Error at depth " + depth + " for URL " + url + ": " + cause.getMessage());
+                deadLetters.add(url, depth, cause);
+                metrics.error();
+                return null;
+            }
+            metrics.pageFetched(result.size());
+            save(url, depth, result);
+            return result;
+        });
+    }
+
+    // Conditional fetch, a 304 or an unchanged revision answers with the links stored by the last crawl.
+    // The store keeps every link of a page, the crawl follows its fan-out of them.
+    private ResponseHandler<List<LinkRecord>> recrawlHandler(String url, PageMetadataStore.Entry previous,
+                                                             int pageId, int depth) {
+        return response -> {
+            if (response.statusCode() == 304 && previous != null) {
+                recrawl.notModified(url);
+                unchangedPages.add(pageId);
+                return previous.records(pageId, depth, fanOut(depth), linkFilter);
+            }
+            List<LinkRecord> links;
+            long revision = 0;
+            if (streamingExtraction) {
+                links = extractStreaming(response, pageId, depth, CrawlConfig.UNLIMITED);
+            } else {
+                Document doc = parse(response);
+                revision = PageMetadataStore.revisionOf(doc);
+                if (revision != 0 && previous != null && previous.revision() == revision) {
+                    recrawl.sameRevision(url, response.header("ETag"), response.header("Last-Modified"), previous);
+                    unchangedPages.add(pageId);
+                    return previous.records(pageId, depth, fanOut(depth), linkFilter);
+                }
+                links = extractDom(doc, pageId, depth, CrawlConfig.UNLIMITED);
+            }
+            if (!recrawl.update(url, response.header("ETag"), response.header("Last-Modified"), revision, links)) {
+                unchangedPages.add(pageId);
+            }
+            int limit = fanOut(depth);
+            return limit < 0 || links.size() <= limit ? links : new ArrayList<>(links.subList(0, limit));
+        };
+    }
+
+    // Links of a page done before a restart, null when it has to be fetched
+    private List<LinkRecord> restore(String url, int pageId, int depth) {
+        List<String[]> saved = checkpoint == null ? null : checkpoint.take(url, depth);
+        if (saved == null) {
+            return null;
+        }
+        return saved.stream()
+                .map(link -> new LinkRecord(pageId, link[0], link[1], depth))
+                .collect(Collectors.toList());
+    }
+
+    private void save(String url, int depth, List<LinkRecord> links) {
+        if (checkpoint != null) {
+            try {
+                checkpoint.pageDone(url, depth, links);
+            } catch (IOException e) {
+                System.err.println("Error writing checkpoint for URL " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Links of up to MAX_TITLES pages of one wiki through the API, results in the order of the urls
+    private List<List<LinkRecord>> scrapeBatch(List<String> urls, int depth) {
+        List<List<LinkRecord>> pages = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        List<Integer> pageIds = new ArrayList<>();
+        for (String url : urls) {
+            int pageId = nextPageId.getAndIncrement();
+            pageUrls.put(pageId, url);
+            List<LinkRecord> saved = restore(url, pageId, depth);
+            pages.add(saved);
+            if (saved == null) {
+                missing.add(url);
+                pageIds.add(pageId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return pages;
+        }
+
+        MediaWikiApi.Batch batch = api.batch(missing);
+        try {
+            while (!batch.complete()) {
+                String answer = fetch(batch.nextUrl(), MediaWikiApi.REQUEST_HEADERS,
+                        response -> new String(response.body().readAllBytes(),
+                                response.charset() == null ? StandardCharsets.UTF_8 : response.charset()));
+                long parseStart = System.nanoTime();
+                batch.read(answer);
+                metrics.recordStage(CrawlMetrics.PARSE, System.nanoTime() - parseStart);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error at depth " + depth + " for a batch of " + missing.size() + " pages: " +
+                    e.getMessage());
+            for (String url : missing) {
+                deadLetters.add(url, depth, e);
+                metrics.error();
+            }
+            return pages;
+        }
+
+        long filterStart = System.nanoTime();
+        int limit = fanOut(depth);
+        for (int i = 0; i < missing.size(); i++) {
+            String url = missing.get(i);
+            List<String> titles = batch.links(url);
+            if (titles == null) {
+                System.err.println("Error at depth " + depth + " for URL " + url + ": no such page");
+                deadLetters.add(url, depth, new FetchException(url, 404));
+                metrics.error();
+                continue;
+            }
+            if (depth == 0) {
+                System.out.println("Page title: " + MediaWikiApi.title(url));
+            }
+            List<LinkRecord> links = new ArrayList<>();
+            for (String title : titles) {
+                if (limit != CrawlConfig.UNLIMITED && links.size() >= limit) {
+                    break;
+                }
+                String href = batch.href(title);
+                if (linkFilter.accepts(href)) {
+                    links.add(new LinkRecord(pageIds.get(i), href, title, depth));
+                }
+            }
+            metrics.pageFetched(links.size());
+            save(url, depth, links);
+            pages.set(urls.indexOf(url), links);
+        }
+        metrics.recordStage(CrawlMetrics.FILTER, System.nanoTime() - filterStart);
+        return pages;
+    }
+
+    private int fanOut(int depth) {
+        return bestFirst != null ? CrawlConfig.UNLIMITED : config.fanOut(depth);
+    }
+
+    private List<LinkRecord> extractDom(Document doc, int pageId, int depth) {
+        return extractDom(doc, pageId, depth, fanOut(depth));
+    }
+
+    private List<LinkRecord> extractDom(Document doc, int pageId, int depth, int limit) {
+        if (depth == 0) {
+            System.out.println("Page title: " + doc.title());
+        }
+        long filterStart = System.nanoTime();
+        List<LinkRecord> links = LinkExtractor.extractRecords(doc, limit, pageId, depth, linkFilter);
+        metrics.recordStage(CrawlMetrics.FILTER, System.nanoTime() - filterStart);
+        return links;
+    }
+
+    private Document parse(FetchResponse response) throws IOException {
+        long parseStart = System.nanoTime();
+        Charset charset = response.charset();
+        Document doc = Jsoup.parse(response.body(), charset == null ? null : charset.name(), response.url());
+        metrics.recordStage(CrawlMetrics.PARSE, System.nanoTime() - parseStart);
+        return doc;
+    }
+
+    private List<LinkRecord> extractStreaming(FetchResponse response, int pageId, int depth) {
+        return extractStreaming(response, pageId, depth, fanOut(depth));
+    }
+
+    private List<LinkRecord> extractStreaming(FetchResponse response, int pageId, int depth, int limit) {
+        Charset charset = response.charset() == null ? StandardCharsets.UTF_8 : response.charset();
+        InputStreamReader html = new InputStreamReader(response.body(), charset);
+        // Links are filtered while the page is parsed, so both count as the parse stage here
+        long parseStart = System.nanoTime();
+        List<LinkRecord> links = StreamingLinkExtractor.extractRecords(html, response.url(), limit,
+                pageId, depth, depth == 0 ? title -> System.out.println("Page title: " + title) : null, linkFilter);
+        metrics.recordStage(CrawlMetrics.PARSE, System.nanoTime() - parseStart);
+        return links;
+    }
+
+    // Blocks until a connection slot of the url's host and one of the whole crawl are free, so a virtual
+    // thread per task never means a connection per task. The slots are held while the handler reads the body,
+    // a streamed response is still downloading then.
+    private <T> T fetch(String url, ResponseHandler<T> handler) throws IOException {
+        return fetch(url, Map.of(), handler);
+    }
+
+    private <T> T fetch(String url, Map<String, String> headers, ResponseHandler<T> handler) throws IOException {
+        Semaphore hostConnections = hosts.connections(url);
+        if (hostConnections != null) {
+            hostConnections.acquireUninterruptibly();
+        }
+        // Taken after the host's slot, a fetch waiting for a busy host holds none of the others' slots
+        if (connections != null) {
+            connections.acquireUninterruptibly();
+        }
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        long fetchStart = System.nanoTime();
+        try (FetchResponse response = fetcher.fetch(url, headers)) {
+            // Time to the response headers, reading the body is part of the parse stage
+            metrics.recordStage(CrawlMetrics.FETCH, System.nanoTime() - fetchStart);
+            if (response.statusCode() >= 400) {
+                throw new FetchException(url, response.statusCode());
+            }
+            return handler.handle(new FetchResponse(response.url(), response.statusCode(), response.headers(),
+                    new CountingInputStream(response.body(), metrics)));
+        } finally {
+            metrics.recordBusy(CrawlMetrics.IO_POOL, System.nanoTime() - fetchStart);
+            inFlight.decrementAndGet();
+            if (connections != null) {
+                connections.release();
+            }
+            if (hostConnections != null) {
+                hostConnections.release();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(FetchResponse response) throws IOException;
+    }
+
+    // Adds every body byte read to the metrics, the original response still owns and closes the stream
+    private static final class CountingInputStream extends FilterInputStream {
+        private final CrawlMetrics metrics;
+
+        CountingInputStream(InputStream in, CrawlMetrics metrics) {
+            super(in);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                metrics.addBytes(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                metrics.addBytes(read);
+            }
+            return read;
+        }
+    }
+
+    public CrawlMetrics metrics() {
+        return metrics;
+    }
+
+    public PageFetcher fetcher() {
+        return fetcher;
+    }
+
+    // Null until the crawl starts when no --output was given, a TEXT sink on stdout is made then
+    public ResultSink resultSink() {
+        return resultSink;
+    }
+
+    public String pageUrl(int pageId) {
+        return pageUrls.get(pageId);
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public int scheduledPages() {
+        return frontier.scheduledPages();
+    }
+
+    // Crawls, streams every link to the result sink and releases the strategy's threads
+    public void run() {
+        begin();
+        try {
+            if (pipelined && api != null) {
+                System.out.println("The MediaWiki API needs whole depths, crawling phased");
+            }
+            if (bestFirst != null) {
+                if (pipelined || api != null) {
+                    System.out.println("Best-first crawl fetches page by page, in rounds of the best urls");
+                }
+                crawlBestFirst();
+            } else if (pipelined && api == null) {
+                crawlPipelined();
+            } else {
+                crawl();
+            }
+        } catch (Exception e) {
+            System.err.println("Error during scraping: " + e.getMessage());
+        } finally {
+            finish();
+        }
+    }
+
+    // Opens the result sink and starts the metrics reporter, a distributed worker calls this before serving
+    public void begin() {
+        System.out.println("Crawling with " + strategy.name() + (pipelined ? ", pipelined" : ", phased") +
+                " (" + config + ")");
+        runStart = System.nanoTime();
+        monitor = new ResourceMonitor();
+        if (resultSink == null) {
+            resultSink = new AsyncResultSink(ResultFormat.TEXT, System.out, false);
+        }
+        if (checkpoint != null && checkpoint.savedPages() > 0) {
+            System.out.println("Resuming from checkpoint, " + checkpoint.savedPages() + " pages are already done");
+        }
+        // Metrics are optional, a port that is taken must not stop the crawl
+        if (metricsReporter != null) {
+            try {
+                metricsReporter.start();
+            } catch (IOException e) {
+                System.err.println("Error starting metrics reporter: " + e.getMessage());
+            }
+        }
+    }
+
+    // Closes everything begin() and the crawl opened, prints the summary and writes the graph, page metadata
+    // and dead letters. Also called by a distributed worker when the coordinator stops it.
+    public void finish() {
+        resultSink.close();
+        System.out.println("\nTotal number of links scraped: " + resultSink.written());
+        shutdown();
+        monitor.close();
+        if (bestFirst != null) {
+            try {
+                bestFirst.close();
+            } catch (IOException e) {
+                System.err.println("Error removing frontier runs: " + e.getMessage());
+            }
+        }
+        if (checkpoint != null) {
+            try {
+                checkpoint.close();
+            } catch (IOException e) {
+                System.err.println("Error writing checkpoint: " + e.getMessage());
+            }
+        }
+        if (metricsReporter != null) {
+            metricsReporter.close();
+        }
+        System.out.printf("Crawl took %d ms, %d pages scheduled, peak fetches in flight: %d, %s%n",
+                (System.nanoTime() - runStart) / 1_000_000, frontier.scheduledPages(), peakInFlight(), monitor);
+        System.out.printf("Skipped %d duplicate urls, visited set holds %d urls in %d KB%n",
+                frontier.duplicates(), frontier.visited().size(), frontier.visited().memoryBytes() / 1024);
+        System.out.println(deadLetters.size() + " pages failed permanently");
+        if (hosts.hosts() > 1) {
+            System.out.println("Requests per host: " + hosts);
+        }
+        System.out.printf("Fetch p50 %.1f ms, p99 %.1f ms, %d KB of page bodies read, %.1f pages/s%n",
+                metrics.stage(CrawlMetrics.FETCH).percentile(50) * 1000,
+                metrics.stage(CrawlMetrics.FETCH).percentile(99) * 1000,
+                metrics.bytesDownloaded() / 1024, metrics.pagesPerSecond());
+        System.out.printf("Connections %.0f%% busy%s%n", metrics.utilization(CrawlMetrics.IO_POOL) * 100,
+                parseStage == null ? ", parsed on the fetching threads" : String.format(
+                        ", %d parse threads %.0f%% busy, pages waited p99 %.1f ms for one",
+                        parseStage.threads(), metrics.utilization(CrawlMetrics.CPU_POOL) * 100,
+                        metrics.stage(CrawlMetrics.HANDOFF).percentile(99) * 1000));
+        LinkGraph graph = graphFile != null || analysisArgs != null ? linkGraph() : null;
+        if (graphFile != null) {
+            try {
+                graph.save(graphFile);
+                System.out.printf("Link graph: %,d pages, %,d links, %,d KB written to %s%n",
+                        graph.nodeCount(), graph.edgeCount(), graph.sizeBytes() / 1024, graphFile);
+            } catch (IOException e) {
+                System.err.println("Error writing link graph: " + e.getMessage());
+            }
+        }
+        if (analysisArgs != null) {
+            GraphAnalytics.report(graph, config.seedUrls(), analysisArgs);
+        }
+        if (recrawl != null) {
+            System.out.println("Re-crawl: " + recrawl.summary());
+            try {
+                recrawl.save();
+                recrawl.writeDiff(recrawlDiffFile);
+            } catch (IOException e) {
+                System.err.println("Error writing page metadata: " + e.getMessage());
+            }
+        }
+        if (deadLetterFile != null) {
+            try {
+                deadLetters.writeTo(deadLetterFile);
+            } catch (IOException e) {
+                System.err.println("Error writing dead letters: " + e.getMessage());
+            }
+        }
+    }
+
+    public DeadLetterLog deadLetters() {
+        return deadLetters;
+    }
+
+    // Stops the strategy's and the parse stage's threads and closes the fetcher's connections
+    public void shutdown() {
+        strategy.shutdown();
+        if (parseStage != null) {
+            parseStage.close();
+        }
+        fetcher.close();
+    }
+}
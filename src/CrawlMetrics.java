@@ -0,0 +1,181 @@
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Counters, gauges and per-stage latency histograms of a running crawl, shared by every strategy through
+ * the engine. Rendered as a JSON snapshot or in the Prometheus text format.
+ */
+public class CrawlMetrics {
+    public static final String FETCH = "fetch";
+    public static final String PARSE = "parse";
+    public static final String FILTER = "filter";
+    public static final String ENQUEUE = "enqueue";
+    // Staged crawl only: time a downloaded page waits for a parse thread
+    public static final String HANDOFF = "handoff";
+
+    // Worker pools whose busy time is tracked: connection slots and, when parsing is staged, parse threads
+    public static final String IO_POOL = "io";
+    public static final String CPU_POOL = "cpu";
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, LatencyHistogram> stages = new LinkedHashMap<>();
+    private final LongAdder pagesFetched = new LongAdder();
+    private final LongAdder linksFound = new LongAdder();
+    private final LongAdder bytesDownloaded = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongSupplier> gauges = new LinkedHashMap<>();
+    private final Map<String, IntSupplier> poolWorkers = new LinkedHashMap<>();
+    private final Map<String, LongAdder> poolBusyNanos = new ConcurrentHashMap<>();
+
+    public CrawlMetrics() {
+        for (String stage : new String[]{FETCH, PARSE, FILTER, ENQUEUE, HANDOFF}) {
+            stages.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void recordStage(String stage, long nanos) {
+        stages.get(stage).record(nanos);
+    }
+
+    public LatencyHistogram stage(String stage) {
+        return stages.get(stage);
+    }
+
+    public void pageFetched(int links) {
+        pagesFetched.increment();
+        linksFound.add(links);
+    }
+
+    public void addBytes(long bytes) {
+        bytesDownloaded.add(bytes);
+    }
+
+    public void error() {
+        errors.increment();
+    }
+
+    // Gauges are read when a snapshot is taken, e.g. frontier size or requests in flight
+    public synchronized void registerGauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    // Workers is read at snapshot time, e.g. the connection limit or the peak of fetches in flight
+    public synchronized void definePool(String pool, IntSupplier workers) {
+        poolWorkers.put(pool, workers);
+        poolBusyNanos.computeIfAbsent(pool, name -> new LongAdder());
+    }
+
+    public void recordBusy(String pool, long nanos) {
+        LongAdder busy = poolBusyNanos.get(pool);
+        if (busy != null) {
+            busy.add(nanos);
+        }
+    }
+
+    // Share of the pool's worker time spent busy since the crawl started, 1.0 means it is the bottleneck
+    public synchronized double utilization(String pool) {
+        IntSupplier workers = poolWorkers.get(pool);
+        double available = workers == null ? 0 : workers.getAsInt() * (double) (System.nanoTime() - startNanos);
+        return available <= 0 ? 0 : Math.min(1.0, poolBusyNanos.get(pool).sum() / available);
+    }
+
+    public synchronized boolean hasPool(String pool) {
+        return poolWorkers.containsKey(pool);
+    }
+
+    public long pagesFetched() {
+        return pagesFetched.sum();
+    }
+
+    public long linksFound() {
+        return linksFound.sum();
+    }
+
+    public long bytesDownloaded() {
+        return bytesDownloaded.sum();
+    }
+
+    public double pagesPerSecond() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds == 0 ? 0 : pagesFetched.sum() / seconds;
+    }
+
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append(String.format(Locale.ROOT,
+                "{\"uptimeSeconds\":%.1f,\"pagesFetched\":%d,\"pagesPerSecond\":%.2f,\"linksFound\":%d,"
+                        + "\"bytesDownloaded\":%d,\"errors\":%d",
+                (System.nanoTime() - startNanos) / 1e9, pagesFetched.sum(), pagesPerSecond(),
+                linksFound.sum(), bytesDownloaded.sum(), errors.sum()));
+        gauges.forEach((name, value) -> json.append(",\"").append(name).append("\":").append(value.getAsLong()));
+        json.append(",\"pools\":{");
+        boolean firstPool = true;
+        for (Map.Entry<String, IntSupplier> pool : poolWorkers.entrySet()) {
+            json.append(firstPool ? "" : ",").append(String.format(Locale.ROOT,
+                    "\"%s\":{\"workers\":%d,\"busySeconds\":%.3f,\"utilization\":%.3f}", pool.getKey(),
+                    pool.getValue().getAsInt(), poolBusyNanos.get(pool.getKey()).sum() / 1e9,
+                    utilization(pool.getKey())));
+            firstPool = false;
+        }
+        json.append("},\"stages\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet()) {
+            LatencyHistogram histogram = stage.getValue();
+            json.append(first ? "" : ",").append(String.format(Locale.ROOT,
+                    "\"%s\":{\"count\":%d,\"totalSeconds\":%.3f,\"p50Ms\":%.2f,\"p90Ms\":%.2f,\"p99Ms\":%.2f}",
+                    stage.getKey(), histogram.count(), histogram.sumSeconds(), histogram.percentile(50) * 1000,
+                    histogram.percentile(90) * 1000, histogram.percentile(99) * 1000));
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    public synchronized String toPrometheus() {
+        StringBuilder text = new StringBuilder(4096);
+        counter(text, "crawler_pages_fetched_total", "Pages fetched and parsed", pagesFetched.sum());
+        counter(text, "crawler_links_found_total", "Links extracted from pages", linksFound.sum());
+        counter(text, "crawler_body_bytes_total", "Decoded response body bytes read", bytesDownloaded.sum());
+        counter(text, "crawler_errors_total", "Pages that failed permanently", errors.sum());
+        gauges.forEach((name, value) -> text.append("# TYPE crawler_").append(name).append(" gauge\n")
+                .append("crawler_").append(name).append(' ').append(value.getAsLong()).append('\n'));
+
+        if (!poolWorkers.isEmpty()) {
+            text.append("# HELP crawler_pool_busy_seconds_total Worker time spent busy per pool\n");
+            text.append("# TYPE crawler_pool_busy_seconds_total counter\n");
+            poolWorkers.keySet().forEach(pool -> text.append("crawler_pool_busy_seconds_total{pool=\"").append(pool)
+                    .append("\"} ").append(String.format(Locale.ROOT, "%.6f", poolBusyNanos.get(pool).sum() / 1e9))
+                    .append('\n'));
+            text.append("# TYPE crawler_pool_workers gauge\n");
+            poolWorkers.forEach((pool, workers) -> text.append("crawler_pool_workers{pool=\"").append(pool)
+                    .append("\"} ").append(workers.getAsInt()).append('\n'));
+        }
+
+        text.append("# HELP crawler_stage_seconds Time spent per page in each crawl stage\n");
+        text.append("# TYPE crawler_stage_seconds histogram\n");
+        for (Map.Entry<String, LatencyHistogram> stage : stages.entrySet()) {
+            long[] cumulative = stage.getValue().cumulativeCounts();
+            for (int i = 0; i < cumulative.length; i++) {
+                String bound = i < LatencyHistogram.BOUNDS.length
+                        ? String.valueOf(LatencyHistogram.BOUNDS[i]) : "+Inf";
+                text.append("crawler_stage_seconds_bucket{stage=\"").append(stage.getKey())
+                        .append("\",le=\"").append(bound).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            text.append("crawler_stage_seconds_sum{stage=\"").append(stage.getKey()).append("\"} ")
+                    .append(String.format(Locale.ROOT, "%.6f", stage.getValue().sumSeconds())).append('\n');
+            text.append("crawler_stage_seconds_count{stage=\"").append(stage.getKey()).append("\"} ")
+                    .append(stage.getValue().count()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static void counter(StringBuilder text, String name, String help, long value) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+                .append("# TYPE ").append(name).append(" counter\n")
+                .append(name).append(' ').append(value).append('\n');
+    }
+}
@@ -0,0 +1,28 @@
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * How the pages of one depth are fetched: sequentially, on a thread pool, with futures or with streams.
+ * The crawl engine owns the frontier and depth handling, a strategy only runs the work it is given.
+ */
+public interface CrawlStrategy {
+
+    String name();
+
+    // Applies the task to every input and returns the results in input order, null results included
+    <T, R> List<R> mapAll(List<T> inputs, Function<T, R> task);
+
+    // Starts one task without waiting for it. Returns false when the strategy has no threads of its own,
+    // the engine then runs the task on the calling thread.
+    default boolean execute(Runnable task) {
+        return false;
+    }
+
+    // Tasks the strategy runs at once, the engine gives no host more than a share of them
+    default int maxInFlight() {
+        return 1;
+    }
+
+    default void shutdown() {
+    }
+}
@@ -0,0 +1,231 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One process of a distributed crawl, started by CrawlCoordinator. The worker owns the urls the hash ring
+ * gives it: it deduplicates and fetches only those, and sends every other discovered link to its owner in
+ * batches over the owner's Unix domain socket.
+ */
+public final class CrawlWorker implements LinkRouter {
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_INTERVAL_MS = 5;
+    // writeUTF takes at most 65535 bytes, any url this long fits even if every char needs three
+    private static final int MAX_URL_CHARS = 65535 / 3;
+
+    private final int id;
+    private final Path clusterDir;
+    private final ConsistentHashRing ring;
+    private final CrawlEngine engine;
+    private final PeerLink[] peers;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    // Links handed to forward() but not yet written to a peer's socket
+    private final AtomicLong unsent = new AtomicLong();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor();
+
+    public CrawlWorker(int id, int workers, Path clusterDir, String[] args) {
+        this.id = id;
+        this.clusterDir = clusterDir;
+        this.ring = new ConsistentHashRing(workers, ConsistentHashRing.DEFAULT_VIRTUAL_NODES);
+        ThreadApproach strategy = new ThreadApproach(ExecutorMode.fromArgs(args), ExecutorMode.poolSizeFromArgs(args),
+                ExecutorMode.inFlightFromArgs(args));
+        this.engine = CrawlEngine.fromArgs(args, strategy).routeLinks(this);
+        // Without --output the links are only counted
+        if (engine.resultSink() == null) {
+            engine.writeResultsTo(new AsyncResultSink(ResultFormat.NDJSON, OutputStream.nullOutputStream(), false));
+        }
+        this.peers = new PeerLink[workers];
+        for (int peer = 0; peer < workers; peer++) {
+            peers[peer] = new PeerLink(peer);
+        }
+    }
+
+    @Override
+    public boolean owns(String canonicalUrl) {
+        return ring.owner(canonicalUrl) == id;
+    }
+
+    @Override
+    public void forward(String canonicalUrl, int depth) {
+        if (canonicalUrl.length() > MAX_URL_CHARS) {
+            System.err.println("Not forwarding a url of " + canonicalUrl.length() + " chars");
+            return;
+        }
+        unsent.incrementAndGet();
+        peers[ring.owner(canonicalUrl)].add(canonicalUrl, depth);
+    }
+
+    // Takes links from peers, then answers the coordinator until it says stop
+    public void serve() throws IOException {
+        engine.begin();
+        ServerSocketChannel server = ClusterProtocol.listen(ClusterProtocol.workerSocket(clusterDir, id));
+        Thread.startVirtualThread(() -> acceptPeers(server));
+        flusher.scheduleWithFixedDelay(this::flushAll, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        try (SocketChannel coordinator = ClusterProtocol.connect(ClusterProtocol.coordinatorSocket(clusterDir))) {
+            DataInputStream in = ClusterProtocol.input(coordinator);
+            DataOutputStream out = ClusterProtocol.output(coordinator);
+            out.writeByte(ClusterProtocol.HELLO);
+            out.writeInt(id);
+            out.flush();
+            while (true) {
+                byte type = in.readByte();
+                if (type == ClusterProtocol.SEED) {
+                    engine.offerLink(in.readUTF(), 0);
+                } else if (type == ClusterProtocol.STATUS) {
+                    // Checked in this order, a task that forwards links is counted as busy until it has done so
+                    boolean idle = engine.idle() && unsent.get() == 0;
+                    out.writeByte(ClusterProtocol.STATUS);
+                    out.writeBoolean(idle);
+                    out.writeLong(sent.get());
+                    out.writeLong(received.get());
+                    out.flush();
+                } else if (type == ClusterProtocol.STOP) {
+                    stop(server);
+                    out.writeByte(ClusterProtocol.DONE);
+                    out.writeLong(engine.metrics().pagesFetched());
+                    out.writeLong(engine.metrics().linksFound());
+                    out.writeInt(engine.deadLetters().size());
+                    out.flush();
+                    return;
+                } else {
+                    throw new IOException("Unexpected message " + type + " from the coordinator");
+                }
+            }
+        }
+    }
+
+    private void stop(ServerSocketChannel server) throws IOException {
+        flusher.shutdownNow();
+        engine.finish();
+        server.close();
+        Files.deleteIfExists(ClusterProtocol.workerSocket(clusterDir, id));
+        System.out.printf("Worker %d: %d pages, %d links, %d links sent to peers, %d received%n",
+                id, engine.metrics().pagesFetched(), engine.metrics().linksFound(), sent.get(), received.get());
+    }
+
+    private void acceptPeers(ServerSocketChannel server) {
+        try {
+            while (true) {
+                SocketChannel peer = server.accept();
+                Thread.startVirtualThread(() -> readLinks(peer));
+            }
+        } catch (IOException e) {
+            // The server socket was closed by stop()
+        }
+    }
+
+    private void readLinks(SocketChannel peer) {
+        try (peer) {
+            DataInputStream in = ClusterProtocol.input(peer);
+            while (true) {
+                byte type = in.readByte();
+                if (type != ClusterProtocol.LINKS) {
+                    throw new IOException("Unexpected message " + type + " from a peer");
+                }
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    int depth = in.readShort();
+                    engine.offerLink(in.readUTF(), depth);
+                }
+                // Counted only once the links are queued, so the coordinator never sees them in no one's hands
+                received.addAndGet(count);
+            }
+        } catch (EOFException e) {
+            // The peer has stopped
+        } catch (IOException e) {
+            System.err.println("Error reading links from a peer: " + e.getMessage());
+        }
+    }
+
+    private void flushAll() {
+        for (PeerLink peer : peers) {
+            peer.flush();
+        }
+    }
+
+    // Outgoing links for one peer, written when a batch is full or by the flusher a few ms later
+    private final class PeerLink {
+        private final int peer;
+        private final List<String> urls = new ArrayList<>(BATCH_SIZE);
+        private final List<Integer> depths = new ArrayList<>(BATCH_SIZE);
+        private SocketChannel channel;
+        private DataOutputStream out;
+
+        PeerLink(int peer) {
+            this.peer = peer;
+        }
+
+        synchronized void add(String url, int depth) {
+            urls.add(url);
+            depths.add(depth);
+            if (urls.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            int count = urls.size();
+            if (count == 0) {
+                return;
+            }
+            try {
+                // Encoded whole before anything reaches the socket, so a failed batch never leaves half a message
+                ByteArrayOutputStream batch = new ByteArrayOutputStream(64 * count);
+                DataOutputStream encoder = new DataOutputStream(batch);
+                encoder.writeByte(ClusterProtocol.LINKS);
+                encoder.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    encoder.writeShort(depths.get(i));
+                    encoder.writeUTF(urls.get(i));
+                }
+                if (out == null) {
+                    channel = ClusterProtocol.connect(ClusterProtocol.workerSocket(clusterDir, peer));
+                    out = ClusterProtocol.output(channel);
+                }
+                batch.writeTo(out);
+                out.flush();
+                sent.addAndGet(count);
+            } catch (IOException e) {
+                System.err.println("Dropping " + count + " links for worker " + peer + ": " + e.getMessage());
+                // Part of the batch may have been written, the next one starts on a fresh connection. The channel
+                // is closed directly, closing the stream would first flush what is left of the batch.
+                if (channel != null) {
+                    try {
+                        channel.close();
+                    } catch (IOException closeError) {
+                        System.err.println("Error closing connection to worker " + peer + ": "
+                                + closeError.getMessage());
+                    }
+                }
+                channel = null;
+                out = null;
+            }
+            urls.clear();
+            depths.clear();
+            unsent.addAndGet(-count);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int id = Integer.parseInt(CrawlConfig.option(args, "worker-id", "0"));
+        int workers = Integer.parseInt(CrawlConfig.option(args, "workers", "1"));
+        Path clusterDir = Path.of(CrawlConfig.option(args, "cluster-dir", "crawl-cluster"));
+        new CrawlWorker(id, workers, clusterDir, args).serve();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,44 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Pages that failed for good, after retries or because their host's circuit was open. They can be
+ * written out as tab separated lines and fed to a later crawl.
+ */
+public class DeadLetterLog {
+
+    public record DeadLetter(String url, int depth, String reason) {
+    }
+
+    private final Queue<DeadLetter> deadLetters = new ConcurrentLinkedQueue<>();
+
+    public void add(String url, int depth, Throwable cause) {
+        String reason = cause.getMessage() == null ? cause.getClass().getSimpleName() : cause.getMessage();
+        deadLetters.add(new DeadLetter(url, depth, reason));
+    }
+
+    public List<DeadLetter> deadLetters() {
+        return new ArrayList<>(deadLetters);
+    }
+
+    public int size() {
+        return deadLetters.size();
+    }
+
+    public void writeTo(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (DeadLetter deadLetter : deadLetters) {
+                writer.write(deadLetter.url() + "\t" + deadLetter.depth() + "\t" +
+                        deadLetter.reason().replace('\t', ' ').replace('\n', ' '));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the same crawl on the fixed pool and on virtual threads for both concurrent approaches
+ * and prints wall time, peak platform threads and peak heap side by side.
+ */
+public class ExecutorComparison {
+
+    public static void main(String[] args) {
+        CrawlConfig config = CrawlConfig.fromArgs(args);
+        int poolSize = ExecutorMode.poolSizeFromArgs(args);
+        List<String> rows = new ArrayList<>();
+
+        for (String strategyName : new String[]{"thread", "future"}) {
+            for (ExecutorMode mode : ExecutorMode.values()) {
+                CrawlStrategy strategy = strategyName.equals("thread")
+                        ? new ThreadApproach(mode, poolSize)
+                        : new CompletableFutureApproach(mode, poolSize);
+                rows.add(measure(config, strategy));
+            }
+        }
+
+        System.out.println("\nExecutor comparison (" + config + ")");
+        System.out.printf("%-40s %10s %8s %10s %12s %12s%n",
+                "strategy", "wall ms", "pages", "in flight", "os threads", "heap MB");
+        rows.forEach(System.out::println);
+    }
+
+    private static String measure(CrawlConfig config, CrawlStrategy strategy) {
+        System.gc();
+        CrawlEngine engine = new CrawlEngine(config, strategy);
+        long start = System.nanoTime();
+        ResourceMonitor monitor = new ResourceMonitor();
+        try {
+            engine.crawl();
+        } finally {
+            engine.shutdown();
+            monitor.close();
+        }
+        return String.format("%-40s %10d %8d %10d %12d %12.1f",
+                strategy.name(),
+                (System.nanoTime() - start) / 1_000_000,
+                engine.scheduledPages(),
+                engine.peakInFlight(),
+                monitor.peakThreads(),
+                monitor.peakHeapBytes() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,55 @@
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public enum ExecutorMode {
+    // A bounded pool of platform threads, each blocking fetch holds one of them
+    FIXED,
+    // One virtual thread per task, blocked fetches park without holding an OS thread
+    VIRTUAL;
+
+    public static final int THREAD_POOL_SIZE = 50;
+
+    public ExecutorService create(int poolSize) {
+        return this == VIRTUAL
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(poolSize);
+    }
+
+    // Tasks handed to the executor at once: enough queued work to keep a fixed pool busy, and for virtual
+    // threads about as many as can use a connection, rather than one parked thread per queued page
+    public int defaultInFlight(int poolSize) {
+        return this == VIRTUAL ? 4 * THREAD_POOL_SIZE : 2 * poolSize;
+    }
+
+    public String describe(int poolSize) {
+        return this == VIRTUAL ? "virtual" : "fixed-" + poolSize;
+    }
+
+    public static ExecutorMode fromArgs(String[] args) {
+        return valueOf(CrawlConfig.option(args, "threads", "fixed").toUpperCase(Locale.ROOT));
+    }
+
+    public static int poolSizeFromArgs(String[] args) {
+        return Integer.parseInt(CrawlConfig.option(args, "pool-size", String.valueOf(THREAD_POOL_SIZE)));
+    }
+
+    public static int inFlightFromArgs(String[] args) {
+        String maxInFlight = CrawlConfig.option(args, "max-in-flight", null);
+        return maxInFlight == null
+                ? fromArgs(args).defaultInFlight(poolSizeFromArgs(args))
+                : Integer.parseInt(maxInFlight);
+    }
+
+    public static void shutdown(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(60, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import org.jsoup.Jsoup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parse time and allocation per page of the DOM extraction against the StreamParser one. Pages are
+ * downloaded once up front, so only parsing and extraction are measured.
+ */
+public class ExtractionBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Links inside inline markup and a nested element right before the content div ends
+    private static final String PARITY_SAMPLE = "<html><head><title>Parity</title></head><body>"
+            + "<div class=\"mw-body-content\"><p><a href=\"/wiki/Foo\"><i>Foo</i> bar</a>, "
+            + "<a href=\"/wiki/Baz\"><b>Baz <span>qux</span></b></a> "
+            + "<a href=\"/wiki/Plain\">Plain</a></p></div></body></html>";
+
+    public static void main(String[] args) throws IOException {
+        CrawlConfig config = CrawlConfig.fromArgs(args);
+        checkParity("nested inline markup", PARITY_SAMPLE.getBytes(StandardCharsets.UTF_8), config.seedUrl());
+        int pageCount = Integer.parseInt(CrawlConfig.option(args, "pages", "20"));
+        int limit = Integer.parseInt(CrawlConfig.option(args, "limit", "10"));
+        int rounds = Integer.parseInt(CrawlConfig.option(args, "rounds", "20"));
+
+        List<String> urls = new ArrayList<>();
+        List<byte[]> bodies = new ArrayList<>();
+        urls.add(config.seedUrl());
+        bodies.add(Jsoup.connect(config.seedUrl()).execute().bodyAsBytes());
+        for (LinkRecord link : LinkExtractor.extractRecords(
+                Jsoup.parse(new String(bodies.get(0), StandardCharsets.UTF_8), config.seedUrl()), pageCount - 1, 0, 0)) {
+            String url = UrlCanonicalizer.canonicalize(link.targetHref(), config.seedUrl());
+            if (url != null) {
+                urls.add(url);
+                bodies.add(Jsoup.connect(url).execute().bodyAsBytes());
+            }
+        }
+        for (int i = 0; i < bodies.size(); i++) {
+            checkParity(urls.get(i), bodies.get(i), urls.get(i));
+        }
+        System.out.printf("%d pages, %d KB of HTML, link limit %d%n", bodies.size(),
+                bodies.stream().mapToLong(body -> body.length).sum() / 1024, limit);
+
+        // First round of each path warms up the JIT and is not reported
+        for (int round = 0; round <= rounds; round++) {
+            boolean report = round == rounds;
+            measure("dom", report, bodies.size(), () -> {
+                for (int i = 0; i < bodies.size(); i++) {
+                    LinkExtractor.extractRecords(
+                            Jsoup.parse(new String(bodies.get(i), StandardCharsets.UTF_8), urls.get(i)), limit, i, 1);
+                }
+            });
+            measure("stream", report, bodies.size(), () -> {
+                for (int i = 0; i < bodies.size(); i++) {
+                    StreamingLinkExtractor.extractRecords(
+                            new InputStreamReader(new ByteArrayInputStream(bodies.get(i)), StandardCharsets.UTF_8),
+                            urls.get(i), limit, i, 1, null);
+                }
+            });
+        }
+    }
+
+    // Both extractors must return the same records, otherwise the timings compare different work
+    static void checkParity(String name, byte[] body, String baseUri) {
+        List<LinkRecord> dom = LinkExtractor.extractRecords(
+                Jsoup.parse(new String(body, StandardCharsets.UTF_8), baseUri), CrawlConfig.UNLIMITED, 0, 0);
+        List<LinkRecord> streamed = StreamingLinkExtractor.extractRecords(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8),
+                baseUri, CrawlConfig.UNLIMITED, 0, 0, null);
+        if (!dom.equals(streamed)) {
+            throw new IllegalStateException("Extractors disagree on " + name + ": dom " + dom + ", stream " + streamed);
+        }
+    }
+
+    private static void measure(String name, boolean report, int pages, Runnable pass) {
+        long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        pass.run();
+        long elapsed = System.nanoTime() - start;
+        long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        if (report) {
+            System.out.printf("%-8s %8.3f ms/page %10d KB allocated/page%n",
+                    name, elapsed / 1e6 / pages, allocated / 1024 / pages);
+        }
+    }
+}
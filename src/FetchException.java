@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+// A response that arrived but cannot be used as a page, e.g. 404 or 503
+public class FetchException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String url;
+    private final int statusCode;
+
+    public FetchException(String url, int statusCode) {
+        super("HTTP " + statusCode + " fetching " + url);
+        this.url = url;
+        this.statusCode = statusCode;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Concurrent set of 64-bit fingerprints stored in primitive open-addressing tables, about 12-18 bytes
+ * per entry instead of the ~150 a ConcurrentHashMap&lt;String, Boolean&gt; entry costs. The table is split
+ * into lock-striped segments so threads adding different urls rarely wait on each other.
+ * Every fingerprint also keeps the shallowest depth it was added at.
+ */
+public class FingerprintSet {
+    private static final int SEGMENTS = 64;
+    private static final float MAX_LOAD = 0.7f;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    public FingerprintSet(int expectedSize) {
+        int perSegment = Math.max(16, (int) (expectedSize / (SEGMENTS * MAX_LOAD)) + 1);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(Integer.highestOneBit(perSegment - 1) << 1);
+        }
+    }
+
+    // Returns true when the fingerprint was not in the set yet
+    public boolean add(long fingerprint) {
+        return add(fingerprint, 0);
+    }
+
+    // Returns true when the fingerprint is new or was only known at a deeper depth
+    public boolean add(long fingerprint, int depth) {
+        Segment segment = segmentFor(fingerprint);
+        synchronized (segment) {
+            return segment.add(fingerprint, (byte) Math.min(depth, Byte.MAX_VALUE));
+        }
+    }
+
+    public boolean contains(long fingerprint) {
+        Segment segment = segmentFor(fingerprint);
+        synchronized (segment) {
+            return segment.contains(fingerprint);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                bytes += (long) segment.keys.length * (Long.BYTES + 1);
+            }
+        }
+        return bytes;
+    }
+
+    private Segment segmentFor(long fingerprint) {
+        // Top bits pick the segment, the low bits pick the slot inside it
+        return segments[(int) (fingerprint >>> 58)];
+    }
+
+    private static final class Segment {
+        private long[] keys;
+        private byte[] depths;
+        private int size;
+
+        Segment(int capacity) {
+            keys = new long[capacity];
+            depths = new byte[capacity];
+        }
+
+        boolean add(long key, byte depth) {
+            if (size + 1 > keys.length * MAX_LOAD) {
+                resize();
+            }
+            int slot = slotOf(keys, key);
+            if (keys[slot] == key) {
+                if (depth >= depths[slot]) {
+                    return false;
+                }
+                depths[slot] = depth;
+                return true;
+            }
+            keys[slot] = key;
+            depths[slot] = depth;
+            size++;
+            return true;
+        }
+
+        boolean contains(long key) {
+            int mask = keys.length - 1;
+            for (int slot = (int) key & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Slot holding the key, or the empty slot where it belongs
+        private static int slotOf(long[] table, long key) {
+            int mask = table.length - 1;
+            int slot = (int) key & mask;
+            while (table[slot] != 0 && table[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void resize() {
+            long[] grownKeys = new long[keys.length * 2];
+            byte[] grownDepths = new byte[keys.length * 2];
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    int slot = slotOf(grownKeys, keys[i]);
+                    grownKeys[slot] = keys[i];
+                    grownDepths[slot] = depths[i];
+                }
+            }
+            keys = grownKeys;
+            depths = grownDepths;
+        }
+    }
+}
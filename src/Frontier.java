@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class Frontier {
+    private final int maxDepth;
+    private final int pageBudget;
+    private final List<Queue<String>> levels = new ArrayList<>();
+    private final AtomicInteger scheduledPages = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final VisitedUrlSet visited;
+
+    public Frontier(int maxDepth, int pageBudget, VisitedUrlSet visited) {
+        this.maxDepth = maxDepth;
+        this.pageBudget = pageBudget;
+        this.visited = visited;
+        for (int depth = 0; depth < maxDepth; depth++) {
+            levels.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    // Returns false when the url is beyond the last depth that gets fetched or was already queued
+    public boolean offer(String canonicalUrl, int depth) {
+        if (depth >= maxDepth) {
+            return false;
+        }
+        if (!visited.add(canonicalUrl, depth)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        levels.get(depth).add(canonicalUrl);
+        return true;
+    }
+
+    // Pipelined crawl: decides right away whether the url gets fetched, without queuing it by depth
+    public boolean admit(String canonicalUrl, int depth) {
+        if (depth >= maxDepth) {
+            return false;
+        }
+        if (!visited.add(canonicalUrl, depth)) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        return reservePage();
+    }
+
+    // Takes every queued url of one depth, stopping once the page budget is spent
+    public List<String> pollLevel(int depth) {
+        List<String> urls = new ArrayList<>();
+        Queue<String> level = levels.get(depth);
+        String url;
+        while ((url = level.poll()) != null) {
+            if (!reservePage()) {
+                level.clear();
+                break;
+            }
+            urls.add(url);
+        }
+        return urls;
+    }
+
+    private boolean reservePage() {
+        if (pageBudget == CrawlConfig.UNLIMITED) {
+            scheduledPages.incrementAndGet();
+            return true;
+        }
+        int current;
+        do {
+            current = scheduledPages.get();
+            if (current >= pageBudget) {
+                return false;
+            }
+        } while (!scheduledPages.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    public int size(int depth) {
+        return depth < maxDepth ? levels.get(depth).size() : 0;
+    }
+
+    // Urls queued at every depth and not yet taken
+    public int size() {
+        int size = 0;
+        for (Queue<String> level : levels) {
+            size += level.size();
+        }
+        return size;
+    }
+
+    public int scheduledPages() {
+        return scheduledPages.get();
+    }
+
+    public int duplicates() {
+        return duplicates.get();
+    }
+
+    public VisitedUrlSet visited() {
+        return visited;
+    }
+}
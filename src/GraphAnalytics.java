@@ -0,0 +1,230 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * PageRank, degree distributions and shortest paths over a LinkGraph. Everything works on int and double
+ * arrays indexed by page id and runs node ranges on the common fork-join pool through parallel streams,
+ * each task writing only its own slots, so there is no locking in the hot loops.
+ */
+public class GraphAnalytics {
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+    public static final int MAX_ITERATIONS = 100;
+
+    private final LinkGraph graph;
+    private final int nodes;
+    // In-links in CSR form, PageRank pulls along them so every node only writes its own rank
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private int iterations;
+
+    public GraphAnalytics(LinkGraph graph) {
+        this.graph = graph;
+        this.nodes = graph.nodeCount();
+        this.inOffsets = new int[nodes + 1];
+        this.inSources = new int[graph.edgeCount()];
+        transpose();
+    }
+
+    private void transpose() {
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            inOffsets[graph.target(edge) + 1]++;
+        }
+        for (int node = 0; node < nodes; node++) {
+            inOffsets[node + 1] += inOffsets[node];
+        }
+        int[] next = Arrays.copyOf(inOffsets, nodes);
+        for (int source = 0; source < nodes; source++) {
+            for (int edge = graph.edgeStart(source); edge < graph.edgeEnd(source); edge++) {
+                inSources[next[graph.target(edge)]++] = source;
+            }
+        }
+    }
+
+    /**
+     * Power iteration until the summed change of all ranks drops below the tolerance. Rank of pages without
+     * out-links (pages at the last depth, mostly) is spread evenly over all pages so the ranks keep summing to 1.
+     */
+    public double[] pageRank(double damping, double tolerance) {
+        double[] rank = new double[nodes];
+        double[] next = new double[nodes];
+        double[] contribution = new double[nodes];
+        Arrays.fill(rank, 1.0 / nodes);
+        for (iterations = 1; iterations <= MAX_ITERATIONS; iterations++) {
+            double[] current = rank;
+            double dangling = IntStream.range(0, nodes).parallel()
+                    .mapToDouble(node -> {
+                        int degree = graph.outDegree(node);
+                        contribution[node] = degree == 0 ? 0 : current[node] / degree;
+                        return degree == 0 ? current[node] : 0;
+                    })
+                    .sum();
+            double base = (1 - damping) / nodes + damping * dangling / nodes;
+            double[] updated = next;
+            double change = IntStream.range(0, nodes).parallel()
+                    .mapToDouble(node -> {
+                        double sum = 0;
+                        for (int i = inOffsets[node]; i < inOffsets[node + 1]; i++) {
+                            sum += contribution[inSources[i]];
+                        }
+                        updated[node] = base + damping * sum;
+                        return Math.abs(updated[node] - current[node]);
+                    })
+                    .sum();
+            next = rank;
+            rank = updated;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return rank;
+    }
+
+    // Iterations the last pageRank call needed
+    public int iterations() {
+        return Math.min(iterations, MAX_ITERATIONS);
+    }
+
+    public int[] outDegrees() {
+        int[] degrees = new int[nodes];
+        IntStream.range(0, nodes).parallel().forEach(node -> degrees[node] = graph.outDegree(node));
+        return degrees;
+    }
+
+    public int[] inDegrees() {
+        int[] degrees = new int[nodes];
+        IntStream.range(0, nodes).parallel().forEach(node -> degrees[node] = inOffsets[node + 1] - inOffsets[node]);
+        return degrees;
+    }
+
+    // Pages per power-of-two degree bucket: [0], [1], [2-3], [4-7], ...
+    public static long[] degreeHistogram(int[] degrees) {
+        long[] buckets = new long[33];
+        for (int degree : degrees) {
+            buckets[32 - Integer.numberOfLeadingZeros(degree)]++;
+        }
+        int used = buckets.length;
+        while (used > 1 && buckets[used - 1] == 0) {
+            used--;
+        }
+        return Arrays.copyOf(buckets, used);
+    }
+
+    /**
+     * Level-synchronous breadth-first search from one or more pages, all of them at distance 0. Each level is
+     * expanded in parallel and a page is claimed with a compare-and-set on its parent slot, so it joins exactly
+     * one next level. Returns the parent of every reached page, -1 for unreached ones and a source itself for
+     * each source, so a path leads back to the nearest source.
+     */
+    public int[] shortestPathTree(int... sources) {
+        AtomicIntegerArray parents = new AtomicIntegerArray(nodes);
+        for (int node = 0; node < nodes; node++) {
+            parents.set(node, -1);
+        }
+        for (int source : sources) {
+            parents.set(source, source);
+        }
+        int[] level = Arrays.stream(sources).distinct().toArray();
+        while (level.length > 0) {
+            int[] current = level;
+            level = IntStream.range(0, current.length).parallel()
+                    .flatMap(i -> {
+                        int node = current[i];
+                        IntStream.Builder claimed = IntStream.builder();
+                        for (int edge = graph.edgeStart(node); edge < graph.edgeEnd(node); edge++) {
+                            int target = graph.target(edge);
+                            if (parents.get(target) == -1 && parents.compareAndSet(target, -1, node)) {
+                                claimed.add(target);
+                            }
+                        }
+                        return claimed.build();
+                    })
+                    .toArray();
+        }
+        int[] tree = new int[nodes];
+        for (int node = 0; node < nodes; node++) {
+            tree[node] = parents.get(node);
+        }
+        return tree;
+    }
+
+    // Page ids from the tree's source to the target, empty when the target was not reached
+    public static List<Integer> path(int[] tree, int target) {
+        List<Integer> path = new ArrayList<>();
+        if (target < 0 || tree[target] == -1) {
+            return path;
+        }
+        for (int node = target; ; node = tree[node]) {
+            path.add(node);
+            if (tree[node] == node) {
+                break;
+            }
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    // Top pages by rank, degree histograms, and the shortest path from the nearest seed to --to when given
+    public static void report(LinkGraph graph, List<String> seedUrls, String[] args) {
+        int top = Integer.parseInt(CrawlConfig.option(args, "top", "10"));
+        double damping = Double.parseDouble(CrawlConfig.option(args, "damping", String.valueOf(DEFAULT_DAMPING)));
+        long start = System.nanoTime();
+        GraphAnalytics analytics = new GraphAnalytics(graph);
+        double[] rank = analytics.pageRank(damping, DEFAULT_TOLERANCE);
+        System.out.printf("PageRank over %,d pages and %,d links: %d iterations in %d ms%n", graph.nodeCount(),
+                graph.edgeCount(), analytics.iterations(), (System.nanoTime() - start) / 1_000_000);
+        IntStream.range(0, graph.nodeCount()).boxed()
+                .sorted((a, b) -> Double.compare(rank[b], rank[a]))
+                .limit(top)
+                .forEach(node -> System.out.printf("%.6f\t%s%n", rank[node], graph.url(node)));
+
+        printHistogram("Out-degree", degreeHistogram(analytics.outDegrees()));
+        printHistogram("In-degree", degreeHistogram(analytics.inDegrees()));
+
+        int[] sources = seedUrls.stream()
+                .mapToInt(seedUrl -> graph.id(UrlCanonicalizer.canonicalize(seedUrl)))
+                .filter(id -> id >= 0)
+                .toArray();
+        if (sources.length == 0) {
+            System.out.println("Seeds " + seedUrls + " are not in the graph, no shortest paths");
+            return;
+        }
+        start = System.nanoTime();
+        int[] tree = analytics.shortestPathTree(sources);
+        long reached = Arrays.stream(tree).filter(parent -> parent != -1).count();
+        System.out.printf("Breadth-first search from %d of %d seeds reached %,d pages in %d ms%n",
+                sources.length, seedUrls.size(), reached, (System.nanoTime() - start) / 1_000_000);
+        String to = CrawlConfig.option(args, "to", null);
+        if (to != null) {
+            List<Integer> path = path(tree, graph.id(UrlCanonicalizer.canonicalize(to)));
+            if (path.isEmpty()) {
+                System.out.println("No path from any seed to " + to);
+            } else {
+                System.out.println("Shortest path, " + (path.size() - 1) + " clicks:");
+                path.forEach(node -> System.out.println("  " + graph.url(node)));
+            }
+        }
+    }
+
+    private static void printHistogram(String name, long[] buckets) {
+        System.out.println(name + " distribution:");
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            String range = bucket <= 1 ? String.valueOf(bucket)
+                    : (1 << (bucket - 1)) + "-" + ((1L << bucket) - 1);
+            System.out.printf("  %-12s %,d%n", range, buckets[bucket]);
+        }
+    }
+
+    // Analyses a graph saved with --graph, each --seed is a source of the shortest paths
+    public static void main(String[] args) throws IOException {
+        LinkGraph graph = LinkGraph.load(Path.of(CrawlConfig.option(args, "graph", "links.graph")));
+        List<String> seeds = CrawlConfig.options(args, "seed");
+        report(graph, seeds.isEmpty() ? List.of(CrawlConfig.DEFAULT_SEED) : seeds, args);
+    }
+}
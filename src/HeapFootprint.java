@@ -0,0 +1,63 @@
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Retained heap of the old List&lt;Elements&gt; result model against LinkRecord lists for the same pages.
+ * Each stored Element keeps its parent chain, so the old model holds every parsed Document alive.
+ */
+public class HeapFootprint {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException {
+        CrawlConfig config = CrawlConfig.fromArgs(args);
+        int pageCount = Integer.parseInt(CrawlConfig.option(args, "pages", "50"));
+        List<String> urls = pageUrls(config.seedUrl(), pageCount);
+        System.out.println("Measuring " + urls.size() + " pages");
+
+        long baseline = usedHeapAfterGc();
+        List<Elements> elements = new ArrayList<>();
+        for (String url : urls) {
+            elements.add(LinkExtractor.extractLinks(Jsoup.connect(url).get(), CrawlConfig.UNLIMITED));
+        }
+        long elementsBytes = usedHeapAfterGc() - baseline;
+        int elementLinks = elements.stream().mapToInt(Elements::size).sum();
+        elements = null;
+
+        baseline = usedHeapAfterGc();
+        List<LinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < urls.size(); i++) {
+            records.addAll(LinkExtractor.extractRecords(Jsoup.connect(urls.get(i)).get(), CrawlConfig.UNLIMITED, i, 0));
+        }
+        long recordsBytes = usedHeapAfterGc() - baseline;
+
+        System.out.printf("List<Elements>:   %,d links, %,d KB retained%n", elementLinks, elementsBytes / 1024);
+        System.out.printf("List<LinkRecord>: %,d links, %,d KB retained%n", records.size(), recordsBytes / 1024);
+    }
+
+    // The seed followed by the first links it points to
+    private static List<String> pageUrls(String seed, int pageCount) throws IOException {
+        List<String> urls = new ArrayList<>();
+        urls.add(UrlCanonicalizer.canonicalize(seed));
+        for (LinkRecord link : LinkExtractor.extractRecords(Jsoup.connect(seed).get(), pageCount - 1, 0, 0)) {
+            String url = UrlCanonicalizer.canonicalize(link.targetHref(), seed);
+            if (url != null && !urls.contains(url)) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
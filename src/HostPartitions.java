@@ -0,0 +1,106 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * One scheduling partition per host: its own connection slots and, in the pipelined crawl, its own queue of
+ * page tasks in front of the strategy. A slow or throttling host then only holds its own slots and threads,
+ * pages of the other hosts keep going, and throughput adds up over the hosts crawled.
+ *
+ * Without --host-connections a host still gets no more than windowSize of the strategy's tasks at once,
+ * the engine makes that half of what the strategy runs.
+ */
+final class HostPartitions {
+    private final int connectionsPerHost;
+    private final int windowSize;
+    private final Executor dispatch;
+    private final Map<String, Partition> partitions = new ConcurrentHashMap<>();
+
+    // connectionsPerHost may be CrawlConfig.UNLIMITED, windowSize is used for the tasks then, dispatch hands
+    // a task to the strategy
+    HostPartitions(int connectionsPerHost, int windowSize, Executor dispatch) {
+        this.connectionsPerHost = connectionsPerHost;
+        this.windowSize = windowSize;
+        this.dispatch = dispatch;
+    }
+
+    private final class Partition {
+        final Semaphore connections;
+        // At most as many tasks of the host reach the strategy as it has connections, the rest wait here
+        final TaskWindow window;
+        final LongAdder requests = new LongAdder();
+
+        Partition() {
+            boolean limited = connectionsPerHost != CrawlConfig.UNLIMITED;
+            this.connections = limited ? new Semaphore(connectionsPerHost, true) : null;
+            this.window = new TaskWindow(dispatch, limited ? connectionsPerHost : windowSize);
+        }
+    }
+
+    private Partition partition(String url) {
+        return partitions.computeIfAbsent(host(url), host -> new Partition());
+    }
+
+    // Connection slots of the url's host, null when connections are not limited. Called once per request.
+    Semaphore connections(String url) {
+        Partition partition = partition(url);
+        partition.requests.increment();
+        return partition.connections;
+    }
+
+    void execute(String url, Runnable task) {
+        partition(url).window.execute(task);
+    }
+
+    int hosts() {
+        return Math.max(1, partitions.size());
+    }
+
+    // The urls of one depth taken from each host in turn, so no host's pages all end up at the back
+    static List<String> interleave(List<String> urls) {
+        Map<String, Queue<String>> byHost = new LinkedHashMap<>();
+        for (String url : urls) {
+            byHost.computeIfAbsent(host(url), host -> new ArrayDeque<>()).add(url);
+        }
+        if (byHost.size() < 2) {
+            return urls;
+        }
+        List<String> interleaved = new ArrayList<>(urls.size());
+        while (interleaved.size() < urls.size()) {
+            for (Queue<String> hostUrls : byHost.values()) {
+                String url = hostUrls.poll();
+                if (url != null) {
+                    interleaved.add(url);
+                }
+            }
+        }
+        return interleaved;
+    }
+
+    // Canonical urls are lower case up to the path, so the text between "://" and the next '/' is the host
+    static String host(String url) {
+        int start = url.indexOf("://");
+        start = start < 0 ? 0 : start + 3;
+        int end = url.indexOf('/', start);
+        return url.substring(start, end < 0 ? url.length() : end).toLowerCase(Locale.ROOT);
+    }
+
+    // Requests made to each host
+    @Override
+    public String toString() {
+        return partitions.entrySet().stream()
+                .sorted(Comparator.comparing(Map.Entry::getKey))
+                .map(partition -> partition.getKey() + " " + partition.getValue().requests.sum())
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,52 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Politeness state of one host: a token bucket caps the request rate and an AIMD limiter finds
+ * how many requests the host can take at once.
+ */
+public class HostScheduler {
+    private final String host;
+    private final TokenBucket rate;
+    private final AimdLimiter concurrency;
+
+    public HostScheduler(String host, double requestsPerSecond, int burst, int initialConcurrency, int maxConcurrency) {
+        this.host = host;
+        this.rate = new TokenBucket(requestsPerSecond, burst);
+        this.concurrency = new AimdLimiter(initialConcurrency, 1, maxConcurrency);
+    }
+
+    // Blocks until both a concurrency slot and a rate token are available
+    public void acquire() {
+        concurrency.acquire();
+        rate.acquire();
+    }
+
+    public void onSuccess(long latencyNanos) {
+        concurrency.onSuccess(latencyNanos);
+    }
+
+    public void onThrottled(long retryAfterSeconds) {
+        if (retryAfterSeconds > 0) {
+            rate.pause(TimeUnit.SECONDS.toNanos(retryAfterSeconds));
+        }
+        concurrency.onOverload();
+    }
+
+    public void onFailure() {
+        concurrency.onOverload();
+    }
+
+    public void onIgnore() {
+        concurrency.onIgnore();
+    }
+
+    public String host() {
+        return host;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: rate %.1f/s, concurrency limit %d, in flight %d, backoffs %d",
+                host, rate.permitsPerSecond(), concurrency.limit(), concurrency.inFlight(), concurrency.backoffs());
+    }
+}
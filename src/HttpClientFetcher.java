@@ -0,0 +1,74 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Fetcher built on one shared java.net.http.HttpClient. Connections are pooled and reused between tasks,
+ * and over https every request to the wiki host is multiplexed as an HTTP/2 stream on the same connection.
+ * Responses are requested gzip-compressed and inflated while the parser reads them.
+ */
+public class HttpClientFetcher implements PageFetcher {
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final String USER_AGENT = "WikiWebScrapping/1.0 (java.net.http)";
+
+    private final HttpClient client;
+
+    public HttpClientFetcher() {
+        this(HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .build());
+    }
+
+    public HttpClientFetcher(HttpClient client) {
+        this.client = client;
+    }
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", "gzip")
+                .GET();
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while fetching " + url, e);
+        }
+
+        InputStream body = response.body();
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+        // A 304 keeps the Content-Encoding of the page it stands for but has no body to inflate
+        if (encoding.equalsIgnoreCase("gzip") && response.statusCode() != 304 && response.statusCode() != 204) {
+            PushbackInputStream peek = new PushbackInputStream(body, 1);
+            int first = peek.read();
+            if (first >= 0) {
+                peek.unread(first);
+                body = new GZIPInputStream(peek, 16 * 1024);
+            } else {
+                body = peek;
+            }
+        }
+        return new FetchResponse(response.uri().toString(), response.statusCode(),
+                response.headers().map(), body);
+    }
+
+    @Override
+    public void close() {
+        client.close();
+    }
+}
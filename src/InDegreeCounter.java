@@ -0,0 +1,43 @@
+/**
+ * Links seen pointing at each url, as a count-min sketch over the url fingerprint: memory is fixed whatever
+ * the number of urls, and a count can only come out too high, never too low.
+ */
+public class InDegreeCounter {
+    private static final int ROWS = 4;
+
+    private final int[] counts;
+    private final int mask;
+
+    // width is rounded up to a power of two, 1 << 16 keeps the sketch at 1 MB
+    public InDegreeCounter(int width) {
+        int size = Integer.highestOneBit(Math.max(2, width - 1)) << 1;
+        this.counts = new int[ROWS * size];
+        this.mask = size - 1;
+    }
+
+    // Counts one more link to the url and returns the estimate including it
+    public int increment(String canonicalUrl) {
+        long fingerprint = UrlFingerprint.of(canonicalUrl);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            int index = slot(fingerprint, row);
+            estimate = Math.min(estimate, ++counts[index]);
+        }
+        return estimate;
+    }
+
+    public int estimate(String canonicalUrl) {
+        long fingerprint = UrlFingerprint.of(canonicalUrl);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < ROWS; row++) {
+            estimate = Math.min(estimate, counts[slot(fingerprint, row)]);
+        }
+        return estimate;
+    }
+
+    // Each row remixes the fingerprint with its own offset, so rows collide on different urls
+    private int slot(long fingerprint, int row) {
+        long hash = UrlFingerprint.mix(fingerprint + row);
+        return row * (mask + 1) + (int) (hash & mask);
+    }
+}
@@ -0,0 +1,19 @@
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.util.Map;
+
+// The original Jsoup.connect(url) download, one connection per request
+public class JsoupFetcher implements PageFetcher {
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        // Jsoup only accepts HTML and XML, a request asking for JSON is a MediaWiki API call
+        boolean json = headers.getOrDefault("Accept", "").contains("json");
+        Connection.Response response = Jsoup.connect(url).headers(headers)
+                .ignoreHttpErrors(true).ignoreContentType(json).execute();
+        return new FetchResponse(response.url().toExternalForm(), response.statusCode(),
+                response.multiHeaders(), response.bodyStream());
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram cheap enough to record every page of a crawl: one bound lookup and two
+ * LongAdder increments, no locks and no allocation. The buckets match what Prometheus expects.
+ */
+public class LatencyHistogram {
+    // Upper bounds in seconds, the last bucket takes everything above
+    static final double[] BOUNDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final long[] BOUNDS_NANOS = new long[BOUNDS.length];
+
+    static {
+        for (int i = 0; i < BOUNDS.length; i++) {
+            BOUNDS_NANOS[i] = (long) (BOUNDS[i] * 1e9);
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[bucket]) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double sumSeconds() {
+        return sumNanos.sum() / 1e9;
+    }
+
+    // Count of samples at or below each bound, the last entry is the total
+    public long[] cumulativeCounts() {
+        long[] cumulative = new long[buckets.length];
+        long running = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            running += buckets[i].sum();
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    // Percentile in seconds, interpolated linearly inside the bucket it falls into
+    public double percentile(double percentile) {
+        long[] cumulative = cumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) {
+            return 0;
+        }
+        double rank = percentile / 100.0 * total;
+        for (int i = 0; i < cumulative.length; i++) {
+            if (cumulative[i] >= rank) {
+                double lower = i == 0 ? 0 : BOUNDS[i - 1];
+                if (i == BOUNDS.length) {
+                    return lower;
+                }
+                long below = i == 0 ? 0 : cumulative[i - 1];
+                long inBucket = cumulative[i] - below;
+                return lower + (BOUNDS[i] - lower) * (inBucket == 0 ? 0 : (rank - below) / inBucket);
+            }
+        }
+        return BOUNDS[BOUNDS.length - 1];
+    }
+}
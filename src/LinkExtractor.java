@@ -0,0 +1,42 @@
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class LinkExtractor {
+    private LinkExtractor() {
+    }
+
+    // Content links of a page, a negative limit keeps all of them
+    public static Elements extractLinks(Document doc, int limit) {
+        return extractLinks(doc, limit, LinkFilter.DEFAULT);
+    }
+
+    public static Elements extractLinks(Document doc, int limit, LinkFilter filter) {
+        Stream<Element> links = doc.body().select("div.mw-body-content a[href]").stream()
+                .filter(link -> filter.accepts(link.attr("href")));
+        if (limit >= 0) {
+            links = links.limit(limit);
+        }
+        return links.collect(Collectors.toCollection(Elements::new));
+    }
+
+    // Same links as compact records, nothing returned here keeps a reference into the Document
+    public static List<LinkRecord> extractRecords(Document doc, int limit, int sourceId, int depth) {
+        return extractRecords(doc, limit, sourceId, depth, LinkFilter.DEFAULT);
+    }
+
+    public static List<LinkRecord> extractRecords(Document doc, int limit, int sourceId, int depth,
+                                                  LinkFilter filter) {
+        return extractLinks(doc, limit, filter).stream()
+                .map(link -> new LinkRecord(sourceId, link.attr("href"), link.text(), depth))
+                .collect(Collectors.toList());
+    }
+
+    public static boolean accepts(String href) {
+        return LinkFilter.DEFAULT.accepts(href);
+    }
+}
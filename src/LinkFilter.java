@@ -0,0 +1,191 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which hrefs are worth fetching. The rules are compiled once into plain string arrays and
+ * matched in place with indexOf and regionMatches, so checking a link allocates nothing and needs no
+ * toLowerCase copy.
+ *
+ * A link is accepted when it contains one of the include strings and has none of the excluded file
+ * extensions, MediaWiki namespaces or query parameters. A namespace rule ending in '*' matches every
+ * namespace starting with it, "Dyskusja*" covers all the talk namespaces.
+ */
+public final class LinkFilter {
+    public static final List<String> DEFAULT_INCLUDES = List.of("wiki");
+    public static final List<String> DEFAULT_EXTENSIONS = List.of(
+            "jpg", "jpeg", "png", "gif", "svg", "webp", "tif", "tiff", "pdf", "djvu", "ogg", "ogv", "oga", "webm",
+            "mp3", "mp4", "wav", "flac", "mid");
+    public static final List<String> DEFAULT_NAMESPACES = List.of(
+            "Plik", "File", "Grafika", "Image", "Media", "Kategoria", "Category", "Specjalna", "Special",
+            "Szablon", "Template", "Pomoc", "Help", "Wikipedia", "Wikipedysta", "Wikipedystka", "User",
+            "Dyskusja*", "Talk", "User_talk", "Moduł", "Module", "MediaWiki", "Wikiprojekt");
+    public static final List<String> DEFAULT_QUERIES = List.of(
+            "action=edit", "action=history", "action=info", "action=raw", "veaction=", "oldid=", "diff=",
+            "redlink=", "printable=", "curid=");
+
+    public static final LinkFilter DEFAULT =
+            new LinkFilter(DEFAULT_INCLUDES, DEFAULT_EXTENSIONS, DEFAULT_NAMESPACES, DEFAULT_QUERIES);
+
+    private final String[] includes;
+    private final String[] extensions;
+    private final String[] namespaces;
+    private final boolean[] namespacePrefixes;
+    private final String[] queries;
+
+    public LinkFilter(List<String> includes, List<String> extensions, List<String> namespaces, List<String> queries) {
+        this.includes = includes.toArray(new String[0]);
+        this.extensions = extensions.stream().map(extension -> "." + extension).toArray(String[]::new);
+        // Hrefs carry non-ASCII titles percent-encoded, so each namespace is matched in both spellings
+        List<String> spellings = new ArrayList<>();
+        List<Boolean> prefixes = new ArrayList<>();
+        for (String namespace : namespaces) {
+            boolean prefix = namespace.endsWith("*");
+            String name = prefix ? namespace.substring(0, namespace.length() - 1) : namespace;
+            for (String spelling : new String[]{name, name.replace(' ', '_'), percentEncode(name)}) {
+                if (!spellings.contains(spelling)) {
+                    spellings.add(spelling);
+                    prefixes.add(prefix);
+                }
+            }
+        }
+        this.namespaces = spellings.toArray(new String[0]);
+        this.namespacePrefixes = new boolean[prefixes.size()];
+        for (int i = 0; i < namespacePrefixes.length; i++) {
+            namespacePrefixes[i] = prefixes.get(i);
+        }
+        this.queries = queries.toArray(new String[0]);
+    }
+
+    // --link-include, --exclude-ext, --exclude-ns and --exclude-query take comma separated lists,
+    // an empty value turns the rule off
+    public static LinkFilter fromArgs(String[] args) {
+        return new LinkFilter(
+                list(CrawlConfig.option(args, "link-include", null), DEFAULT_INCLUDES),
+                list(CrawlConfig.option(args, "exclude-ext", null), DEFAULT_EXTENSIONS),
+                list(CrawlConfig.option(args, "exclude-ns", null), DEFAULT_NAMESPACES),
+                list(CrawlConfig.option(args, "exclude-query", null), DEFAULT_QUERIES));
+    }
+
+    private static List<String> list(String value, List<String> defaults) {
+        if (value == null) {
+            return defaults;
+        }
+        return Arrays.stream(value.split(",")).map(String::trim).filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    public boolean accepts(String href) {
+        if (!containsAny(href)) {
+            return false;
+        }
+        int query = href.indexOf('?');
+        int fragment = href.indexOf('#');
+        int pathEnd = query >= 0 ? query : fragment >= 0 ? fragment : href.length();
+        return !hasExcludedExtension(href, pathEnd)
+                && !hasExcludedNamespace(href, pathEnd, query)
+                && !hasExcludedQuery(href, query, fragment);
+    }
+
+    // The compiled rules, two filters with the same text accept the same links
+    @Override
+    public String toString() {
+        return "include=" + Arrays.toString(includes) + ", extensions=" + Arrays.toString(extensions)
+                + ", namespaces=" + Arrays.toString(namespaces) + ", queries=" + Arrays.toString(queries);
+    }
+
+    private boolean containsAny(String href) {
+        if (includes.length == 0) {
+            return true;
+        }
+        for (String include : includes) {
+            if (href.contains(include)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasExcludedExtension(String href, int pathEnd) {
+        int dot = href.lastIndexOf('.', pathEnd - 1);
+        if (dot < 0) {
+            return false;
+        }
+        for (String extension : extensions) {
+            if (extension.length() == pathEnd - dot
+                    && href.regionMatches(true, dot, extension, 0, extension.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The title is the path after /wiki/, or the title parameter of /w/index.php
+    private boolean hasExcludedNamespace(String href, int pathEnd, int query) {
+        int title = href.indexOf("/wiki/");
+        if (title >= 0 && title < pathEnd) {
+            title += "/wiki/".length();
+        } else {
+            title = query >= 0 ? parameter(href, query, "title=") : -1;
+            if (title < 0) {
+                return false;
+            }
+        }
+        int colon = href.indexOf(':', title);
+        if (colon < 0) {
+            return false;
+        }
+        for (int i = 0; i < namespaces.length; i++) {
+            String namespace = namespaces[i];
+            boolean lengthFits = namespacePrefixes[i]
+                    ? colon >= title + namespace.length()
+                    : colon == title + namespace.length();
+            if (lengthFits && href.regionMatches(true, title, namespace, 0, namespace.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasExcludedQuery(String href, int query, int fragment) {
+        if (query < 0) {
+            return false;
+        }
+        for (String excluded : queries) {
+            int value = parameter(href, query, excluded);
+            if (value >= 0 && (fragment < 0 || value <= fragment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Index right after "name=value-prefix" when a query parameter starts with it, -1 otherwise
+    private static int parameter(String href, int query, String start) {
+        for (int at = query; at >= 0 && at < href.length(); at = nextParameter(href, at + 1)) {
+            if (href.regionMatches(true, at + 1, start, 0, start.length())) {
+                return at + 1 + start.length();
+            }
+        }
+        return -1;
+    }
+
+    private static int nextParameter(String href, int from) {
+        int ampersand = href.indexOf('&', from);
+        return ampersand >= 0 ? ampersand : -1;
+    }
+
+    private static String percentEncode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 0) {
+                encoded.append((char) b);
+            } else {
+                encoded.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Link graph of a crawl in compressed sparse row form: the out-links of page i are
+ * targets[offsets[i]] up to targets[offsets[i + 1]], ids are interned canonical urls.
+ *
+ * The file layout is the in-memory layout, so a saved graph is loaded by mapping the file: offsets, targets
+ * and urls stay in the page cache and only the lookup map built on the first id(url) call lives on the heap.
+ */
+public class LinkGraph {
+    // "WGRF"
+    private static final int MAGIC = 0x57475246;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer urlOffsets;
+    private final ByteBuffer urlBytes;
+    private Map<String, Integer> ids;
+
+    LinkGraph(int[] offsets, int[] targets, String[] urls) {
+        this.offsets = IntBuffer.wrap(offsets);
+        this.targets = IntBuffer.wrap(targets);
+        byte[][] encoded = new byte[urls.length][];
+        int[] urlOffsets = new int[urls.length + 1];
+        for (int i = 0; i < urls.length; i++) {
+            encoded[i] = urls[i].getBytes(StandardCharsets.UTF_8);
+            urlOffsets[i + 1] = urlOffsets[i] + encoded[i].length;
+        }
+        ByteBuffer urlBytes = ByteBuffer.allocate(urlOffsets[urls.length]);
+        for (byte[] url : encoded) {
+            urlBytes.put(url);
+        }
+        this.urlOffsets = IntBuffer.wrap(urlOffsets);
+        this.urlBytes = urlBytes.flip();
+    }
+
+    private LinkGraph(IntBuffer offsets, IntBuffer targets, IntBuffer urlOffsets, ByteBuffer urlBytes) {
+        this.offsets = offsets;
+        this.targets = targets;
+        this.urlOffsets = urlOffsets;
+        this.urlBytes = urlBytes;
+    }
+
+    public int nodeCount() {
+        return offsets.limit() - 1;
+    }
+
+    public int edgeCount() {
+        return targets.limit();
+    }
+
+    // Out-links of a node are the edges from edgeStart(node) up to edgeEnd(node), read with target(edge)
+    public int edgeStart(int node) {
+        return offsets.get(node);
+    }
+
+    public int edgeEnd(int node) {
+        return offsets.get(node + 1);
+    }
+
+    public int target(int edge) {
+        return targets.get(edge);
+    }
+
+    public int outDegree(int node) {
+        return offsets.get(node + 1) - offsets.get(node);
+    }
+
+    public int[] outLinks(int node) {
+        int[] links = new int[outDegree(node)];
+        targets.get(edgeStart(node), links);
+        return links;
+    }
+
+    public String url(int node) {
+        int start = urlOffsets.get(node);
+        byte[] bytes = new byte[urlOffsets.get(node + 1) - start];
+        urlBytes.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // -1 for a url that is not in the graph
+    public synchronized int id(String canonicalUrl) {
+        if (ids == null) {
+            ids = new HashMap<>(nodeCount() * 2);
+            for (int node = 0; node < nodeCount(); node++) {
+                ids.put(url(node), node);
+            }
+        }
+        return ids.getOrDefault(canonicalUrl, -1);
+    }
+
+    // Bytes the graph takes on disk, and on the heap when it was built rather than loaded
+    public long sizeBytes() {
+        return HEADER_BYTES + 4L * (offsets.limit() + targets.limit() + urlOffsets.limit()) + urlBytes.limit();
+    }
+
+    public void save(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, sizeBytes());
+            out.putInt(MAGIC).putInt(VERSION).putInt(nodeCount()).putInt(edgeCount());
+            for (IntBuffer section : new IntBuffer[]{offsets, targets, urlOffsets}) {
+                for (int i = 0; i < section.limit(); i++) {
+                    out.putInt(section.get(i));
+                }
+            }
+            out.put(urlBytes.duplicate().rewind());
+            out.force();
+        }
+    }
+
+    public static LinkGraph load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt(0) != MAGIC || in.getInt(4) != VERSION) {
+                throw new IOException("Not a link graph file: " + path);
+            }
+            int nodes = in.getInt(8);
+            int edges = in.getInt(12);
+            int position = HEADER_BYTES;
+            IntBuffer offsets = in.slice(position, 4 * (nodes + 1)).asIntBuffer();
+            position += 4 * (nodes + 1);
+            IntBuffer targets = in.slice(position, 4 * edges).asIntBuffer();
+            position += 4 * edges;
+            IntBuffer urlOffsets = in.slice(position, 4 * (nodes + 1)).asIntBuffer();
+            position += 4 * (nodes + 1);
+            ByteBuffer urlBytes = in.slice(position, urlOffsets.get(nodes));
+            return new LinkGraph(offsets, targets, urlOffsets, urlBytes);
+        }
+    }
+
+    // Prints the size of a saved graph and the pages with the most out-links
+    public static void main(String[] args) throws IOException {
+        long start = System.nanoTime();
+        LinkGraph graph = load(Path.of(CrawlConfig.option(args, "graph", "links.graph")));
+        System.out.printf("Loaded %,d pages and %,d links (%,d KB) in %d ms%n", graph.nodeCount(), graph.edgeCount(),
+                graph.sizeBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+        int top = Integer.parseInt(CrawlConfig.option(args, "top", "10"));
+        IntStream.range(0, graph.nodeCount()).boxed()
+                .sorted((a, b) -> Integer.compare(graph.outDegree(b), graph.outDegree(a)))
+                .limit(top)
+                .forEach(node -> System.out.println(graph.outDegree(node) + "\t" + graph.url(node)));
+    }
+}
@@ -0,0 +1,48 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the out-links of every fetched page while the crawl runs and packs them into a LinkGraph.
+ * Each page keeps a sorted, duplicate-free int[] of target ids until build() lays them out in CSR form.
+ */
+public class LinkGraphBuilder {
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final PageIds pageIds = new PageIds();
+    private final Map<Integer, int[]> outLinks = new ConcurrentHashMap<>();
+
+    // Links of one page, all with the same source; links that do not canonicalize to a page are dropped
+    public void addPage(String sourceUrl, List<LinkRecord> links) {
+        int source = pageIds.intern(sourceUrl);
+        int[] targets = new int[links.size()];
+        int count = 0;
+        for (LinkRecord link : links) {
+            String url = UrlCanonicalizer.canonicalize(link.targetHref(), sourceUrl);
+            if (url != null) {
+                targets[count++] = pageIds.intern(url);
+            }
+        }
+        Arrays.sort(targets, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || targets[unique - 1] != targets[i]) {
+                targets[unique++] = targets[i];
+            }
+        }
+        // A page fetched again from a shallower depth has the same links, the first copy is enough
+        outLinks.putIfAbsent(source, unique == 0 ? NO_TARGETS : Arrays.copyOf(targets, unique));
+    }
+
+    public LinkGraph build() {
+        int nodes = pageIds.size();
+        int[] offsets = new int[nodes + 1];
+        for (int node = 0; node < nodes; node++) {
+            offsets[node + 1] = offsets[node] + outLinks.getOrDefault(node, NO_TARGETS).length;
+        }
+        int[] targets = new int[offsets[nodes]];
+        outLinks.forEach((node, links) -> System.arraycopy(links, 0, targets, offsets[node], links.length));
+        return new LinkGraph(offsets, targets, pageIds.urls());
+    }
+}
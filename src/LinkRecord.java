@@ -0,0 +1,11 @@
+/**
+ * One link found on a crawled page. Only plain strings and ints are kept, so the jsoup Document
+ * the link came from can be collected as soon as extraction is done.
+ *
+ * @param sourceId   id of the page the link was found on, see CrawlEngine.pageUrl
+ * @param targetHref href exactly as written on the page
+ * @param anchorText visible text of the link
+ * @param depth      depth of the source page, the seed is 0
+ */
+public record LinkRecord(int sourceId, String targetHref, String anchorText, int depth) {
+}
@@ -0,0 +1,10 @@
+/**
+ * Splits the url space of a distributed crawl. The engine fetches and deduplicates only the urls its
+ * worker owns and forwards every other discovered link to the owner.
+ */
+public interface LinkRouter {
+
+    boolean owns(String canonicalUrl);
+
+    void forward(String canonicalUrl, int depth);
+}
@@ -0,0 +1,160 @@
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Link source that asks the MediaWiki API instead of downloading and parsing article HTML. One
+ * action=query&prop=links request covers up to 50 titles; when their links do not fit in one answer the API
+ * returns a continue token and the same titles are asked again from there.
+ *
+ * The API lists links without anchors, in title order and without duplicates, and includes navigation boxes.
+ * The records use the title as anchor text and the same absolute /wiki/ hrefs the HTML path canonicalizes to.
+ */
+public class MediaWikiApi {
+    public static final int MAX_TITLES = 50;
+    public static final String DEFAULT_API_PATH = "/w/api.php";
+    // Sent with every API request, fetchers that check content types let JSON through only for these
+    public static final Map<String, String> REQUEST_HEADERS = Map.of("Accept", "application/json");
+
+    private final String apiPath;
+
+    public MediaWikiApi(String apiPath) {
+        this.apiPath = apiPath;
+    }
+
+    // --link-source=api turns the API on, --api-path sets the script path on every wiki
+    public static MediaWikiApi fromArgs(String[] args) {
+        if (!"api".equals(CrawlConfig.option(args, "link-source", "html"))) {
+            return null;
+        }
+        return new MediaWikiApi(CrawlConfig.option(args, "api-path", DEFAULT_API_PATH));
+    }
+
+    // Canonical urls in groups of at most MAX_TITLES from the same wiki, in their original order
+    public static List<List<String>> batches(List<String> urls) {
+        Map<String, List<String>> bySite = new LinkedHashMap<>();
+        for (String url : urls) {
+            bySite.computeIfAbsent(site(url), site -> new ArrayList<>()).add(url);
+        }
+        List<List<String>> batches = new ArrayList<>();
+        for (List<String> siteUrls : bySite.values()) {
+            for (int start = 0; start < siteUrls.size(); start += MAX_TITLES) {
+                batches.add(siteUrls.subList(start, Math.min(start + MAX_TITLES, siteUrls.size())));
+            }
+        }
+        return batches;
+    }
+
+    public Batch batch(List<String> urls) {
+        return new Batch(urls);
+    }
+
+    static String site(String canonicalUrl) {
+        URI uri = URI.create(canonicalUrl);
+        return uri.getScheme() + "://" + uri.getRawAuthority();
+    }
+
+    // MediaWiki title with spaces, null when the url is not an article url
+    static String title(String canonicalUrl) {
+        URI uri = URI.create(canonicalUrl);
+        String path = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        String title = UrlCanonicalizer.titleOf(path);
+        return title == null ? null : title.replace('_', ' ');
+    }
+
+    /**
+     * Links of one batch of pages, filled in by read() over as many requests as the continuation needs.
+     */
+    public final class Batch {
+        private final String site;
+        private final Map<String, String> titles = new LinkedHashMap<>();
+        private final Map<String, List<String>> links = new HashMap<>();
+        // Normalized and redirected titles, from what was asked to what the API answered with
+        private final Map<String, String> renamed = new HashMap<>();
+        private final Set<String> missing = new HashSet<>();
+        private Map<String, String> continuation = Map.of();
+        private boolean complete;
+
+        private Batch(List<String> urls) {
+            this.site = site(urls.get(0));
+            for (String url : urls) {
+                String title = title(url);
+                if (title != null) {
+                    titles.put(url, title);
+                }
+            }
+            complete = titles.isEmpty();
+        }
+
+        public boolean complete() {
+            return complete;
+        }
+
+        public String nextUrl() {
+            StringBuilder url = new StringBuilder(site).append(apiPath)
+                    .append("?action=query&format=json&formatversion=2&prop=links&plnamespace=0&pllimit=max")
+                    .append("&redirects=1&titles=")
+                    .append(URLEncoder.encode(String.join("|", titles.values()), StandardCharsets.UTF_8));
+            continuation.forEach((name, value) -> url.append('&').append(name).append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8)));
+            return url.toString();
+        }
+
+        @SuppressWarnings("unchecked")
+        public void read(String answer) {
+            Map<String, Object> json = (Map<String, Object>) Json.parse(answer);
+            if (json.get("error") instanceof Map<?, ?> error) {
+                throw new IllegalStateException("MediaWiki API error: " + error.get("info"));
+            }
+            Map<String, Object> query = (Map<String, Object>) json.getOrDefault("query", Map.of());
+            for (String key : new String[]{"normalized", "redirects"}) {
+                for (Object rename : (List<Object>) query.getOrDefault(key, List.of())) {
+                    Map<String, Object> fromTo = (Map<String, Object>) rename;
+                    renamed.put((String) fromTo.get("from"), (String) fromTo.get("to"));
+                }
+            }
+            for (Object item : (List<Object>) query.getOrDefault("pages", List.of())) {
+                Map<String, Object> page = (Map<String, Object>) item;
+                String title = (String) page.get("title");
+                if (Boolean.TRUE.equals(page.get("missing")) || Boolean.TRUE.equals(page.get("invalid"))) {
+                    missing.add(title);
+                    continue;
+                }
+                List<String> pageLinks = links.computeIfAbsent(title, t -> new ArrayList<>());
+                for (Object link : (List<Object>) page.getOrDefault("links", List.of())) {
+                    pageLinks.add((String) ((Map<String, Object>) link).get("title"));
+                }
+            }
+            Map<String, String> next = new LinkedHashMap<>();
+            if (json.get("continue") instanceof Map<?, ?> more) {
+                more.forEach((name, value) -> next.put((String) name, String.valueOf(value)));
+            }
+            continuation = next;
+            complete = next.isEmpty();
+        }
+
+        // Link titles of a page, null when the wiki does not have it
+        public List<String> links(String url) {
+            String title = titles.get(url);
+            for (int hops = 0; title != null && renamed.containsKey(title) && hops < 5; hops++) {
+                title = renamed.get(title);
+            }
+            if (title == null || missing.contains(title)) {
+                return null;
+            }
+            return links.getOrDefault(title, List.of());
+        }
+
+        // Absolute /wiki/ href of a linked title, on the batch's wiki
+        public String href(String linkTitle) {
+            return site + "/wiki/" + UrlCanonicalizer.encodeTitle(linkTitle.replace(' ', '_'));
+        }
+    }
+}
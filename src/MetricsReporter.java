@@ -0,0 +1,95 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes CrawlMetrics while a crawl runs: a JSON snapshot every interval (appended to a file, or printed
+ * to stderr when no file is given, so it never mixes with results on stdout) and, when a port is set,
+ * a Prometheus text endpoint at /metrics.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private final CrawlMetrics metrics;
+    private final long intervalSeconds;
+    private final Path jsonFile;
+    private final int port;
+    private ScheduledExecutorService scheduler;
+    private HttpServer server;
+
+    public MetricsReporter(CrawlMetrics metrics, long intervalSeconds, Path jsonFile, int port) {
+        this.metrics = metrics;
+        this.intervalSeconds = intervalSeconds;
+        this.jsonFile = jsonFile;
+        this.port = port;
+    }
+
+    // Returns null unless --metrics-interval, --metrics-json or --metrics-port is given
+    public static MetricsReporter fromArgs(String[] args, CrawlMetrics metrics) {
+        String interval = CrawlConfig.option(args, "metrics-interval", null);
+        String jsonFile = CrawlConfig.option(args, "metrics-json", null);
+        String port = CrawlConfig.option(args, "metrics-port", null);
+        if (interval == null && jsonFile == null && port == null) {
+            return null;
+        }
+        return new MetricsReporter(metrics,
+                interval == null ? 10 : Long.parseLong(interval),
+                jsonFile == null ? null : Path.of(jsonFile),
+                port == null ? -1 : Integer.parseInt(port));
+    }
+
+    public void start() throws IOException {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::writeSnapshot, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+
+        if (port >= 0) {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            System.out.println("Metrics at http://localhost:" + server.getAddress().getPort() + "/metrics");
+        }
+    }
+
+    private void writeSnapshot() {
+        String snapshot = metrics.toJson();
+        if (jsonFile == null) {
+            System.err.println("metrics " + snapshot);
+            return;
+        }
+        try {
+            Files.writeString(jsonFile, snapshot + "\n", StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            writeSnapshot();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Downloads one page. A fetcher is shared by every task of a crawl, so implementations must be thread-safe
+ * and are the place to keep pooled connections.
+ */
+public interface PageFetcher {
+
+    // Returns the response whatever its status code, the caller decides what counts as an error
+    default FetchResponse fetch(String url) throws IOException {
+        return fetch(url, Map.of());
+    }
+
+    // Same with extra request headers, e.g. If-None-Match for a conditional request
+    FetchResponse fetch(String url, Map<String, String> headers) throws IOException;
+
+    default void close() {
+    }
+
+    static PageFetcher fromArgs(String[] args) {
+        try {
+            String replay = CrawlConfig.option(args, "replay", null);
+            if (replay != null) {
+                return new ReplayFetcher(Path.of(replay));
+            }
+            // Retries sit outside the politeness scheduler, so every attempt waits for its host's turn
+            PageFetcher polite = PoliteFetcher.fromArgs(args, baseFetcher(CrawlConfig.option(args, "fetcher", "jsoup")));
+            PageFetcher fetcher = RetryingFetcher.fromArgs(args, polite);
+            String record = CrawlConfig.option(args, "record", null);
+            return record == null ? fetcher : new RecordingFetcher(fetcher, Path.of(record));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open WARC archive", e);
+        }
+    }
+
+    private static PageFetcher baseFetcher(String name) {
+        switch (name) {
+            case "jsoup":
+                return new JsoupFetcher();
+            case "http2":
+                return new HttpClientFetcher();
+            default:
+                throw new IllegalArgumentException("Unknown fetcher: " + name);
+        }
+    }
+}
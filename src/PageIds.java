@@ -0,0 +1,32 @@
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Interns canonical page urls to dense int ids in first-seen order, so the link graph stores each url once
+ * and every edge as a plain int.
+ */
+public class PageIds {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    public int intern(String canonicalUrl) {
+        return ids.computeIfAbsent(canonicalUrl, url -> nextId.getAndIncrement());
+    }
+
+    // -1 when the url was never interned
+    public int id(String canonicalUrl) {
+        return ids.getOrDefault(canonicalUrl, -1);
+    }
+
+    public int size() {
+        return nextId.get();
+    }
+
+    // Urls indexed by id
+    public String[] urls() {
+        String[] urls = new String[size()];
+        ids.forEach((url, id) -> urls[id] = url);
+        return urls;
+    }
+}
@@ -0,0 +1,255 @@
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * What the last crawl saw of every page: ETag, Last-Modified, MediaWiki revision id, a hash of the page's
+ * link set and the links themselves. The next crawl sends conditional requests with it, reuses the stored
+ * links for pages answered with 304 Not Modified or served at the same revision, and records which links
+ * were added or removed elsewhere.
+ *
+ * A page's links are stored without the fan-out cut, so a crawl with another --fan-out neither reuses a
+ * list cut short by the last one nor sees a change in links that are only cut differently.
+ */
+public class PageMetadataStore {
+    private static final int VERSION = 1;
+    private static final Pattern REVISION = Pattern.compile("\"wgRevisionId\"\\s*:\\s*(\\d+)");
+
+    public record Entry(String etag, String lastModified, long revision, long linkHash, List<String[]> links) {
+
+        public Map<String, String> conditionalHeaders() {
+            Map<String, String> headers = new HashMap<>();
+            if (etag != null) {
+                headers.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                headers.put("If-Modified-Since", lastModified);
+            }
+            return headers;
+        }
+
+        // The stored links under this crawl's fan-out and filter, a negative limit keeps all of them
+        public List<LinkRecord> records(int pageId, int depth, int limit, LinkFilter filter) {
+            List<LinkRecord> records = new ArrayList<>();
+            for (String[] link : links) {
+                if (limit >= 0 && records.size() >= limit) {
+                    break;
+                }
+                if (filter.accepts(link[0])) {
+                    records.add(new LinkRecord(pageId, link[0], link[1], depth));
+                }
+            }
+            return records;
+        }
+    }
+
+    private final Path path;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<String> diff = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final AtomicInteger sameLinks = new AtomicInteger();
+    private final AtomicInteger changed = new AtomicInteger();
+    private final AtomicInteger added = new AtomicInteger();
+
+    public PageMetadataStore(Path path) throws IOException {
+        this.path = path;
+        if (Files.exists(path)) {
+            load();
+        }
+    }
+
+    // --recrawl=path keeps the metadata between runs
+    public static PageMetadataStore fromArgs(String[] args) throws IOException {
+        String path = CrawlConfig.option(args, "recrawl", null);
+        return path == null ? null : new PageMetadataStore(Path.of(path));
+    }
+
+    public Entry get(String url) {
+        return entries.get(url);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void notModified(String url) {
+        notModified.incrementAndGet();
+    }
+
+    // Downloaded again at the revision stored last time, the links are kept and only the validators change
+    public void sameRevision(String url, String etag, String lastModified, Entry previous) {
+        entries.put(url, new Entry(etag, lastModified, previous.revision(), previous.linkHash(), previous.links()));
+        sameLinks.incrementAndGet();
+    }
+
+    /**
+     * Stores what a full download of the page found, all its links and not just the fan-out the crawl
+     * follows. Returns false when its links are the same as last time, otherwise the difference goes to the
+     * diff; every link of a page seen for the first time counts as added.
+     */
+    public boolean update(String url, String etag, String lastModified, long revision, List<LinkRecord> links) {
+        Set<String> targets = targets(url, links.stream().map(LinkRecord::targetHref).collect(Collectors.toList()));
+        long hash = hash(targets);
+        List<String[]> stored = new ArrayList<>(links.size());
+        for (LinkRecord link : links) {
+            stored.add(new String[]{link.targetHref(), link.anchorText()});
+        }
+        Entry previous = entries.put(url, new Entry(etag, lastModified, revision, hash, stored));
+        if (previous != null && previous.linkHash() == hash) {
+            sameLinks.incrementAndGet();
+            return false;
+        }
+        if (previous == null) {
+            added.incrementAndGet();
+        } else {
+            changed.incrementAndGet();
+        }
+        Set<String> before = previous == null ? Set.of()
+                : targets(url, previous.links().stream().map(link -> link[0]).collect(Collectors.toList()));
+        for (String target : targets) {
+            if (!before.contains(target)) {
+                diff.add("+\t" + url + "\t" + target);
+            }
+        }
+        for (String target : before) {
+            if (!targets.contains(target)) {
+                diff.add("-\t" + url + "\t" + target);
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> targets(String pageUrl, List<String> hrefs) {
+        Set<String> targets = new TreeSet<>();
+        for (String href : hrefs) {
+            String url = UrlCanonicalizer.canonicalize(href, pageUrl);
+            if (url != null) {
+                targets.add(url);
+            }
+        }
+        return targets;
+    }
+
+    // Order-independent because the targets come sorted
+    private static long hash(Set<String> targets) {
+        long hash = 17;
+        for (String target : targets) {
+            hash = UrlFingerprint.mix(hash * 31 + UrlFingerprint.of(target));
+        }
+        return hash;
+    }
+
+    // The wgRevisionId MediaWiki puts in the page's inline configuration, 0 when the page has none
+    public static long revisionOf(Document doc) {
+        for (Element script : doc.getElementsByTag("script")) {
+            Matcher matcher = REVISION.matcher(script.data());
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return 0;
+    }
+
+    public String summary() {
+        return String.format("%d pages not modified, %d re-downloaded with the same links, %d changed, %d new, "
+                + "%d link changes", notModified.get(), sameLinks.get(), changed.get(), added.get(), diff.size());
+    }
+
+    // Lines of "+" or "-", source url and target url, tab separated
+    public void writeDiff(Path diffPath) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(diffPath, StandardCharsets.UTF_8)) {
+            for (String line : diff) {
+                writer.write(line);
+                writer.newLine();
+            }
+        }
+    }
+
+    public Path defaultDiffPath() {
+        return path.resolveSibling(path.getFileName() + ".diff");
+    }
+
+    // Written next to the old file and renamed over it, a crash while saving keeps the previous store
+    public void save() throws IOException {
+        Path next = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(next), 1 << 16))) {
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                Entry entry = item.getValue();
+                writeString(out, item.getKey());
+                writeString(out, entry.etag());
+                writeString(out, entry.lastModified());
+                out.writeLong(entry.revision());
+                out.writeLong(entry.linkHash());
+                out.writeInt(entry.links().size());
+                for (String[] link : entry.links()) {
+                    writeString(out, link[0]);
+                    writeString(out, link[1]);
+                }
+            }
+        }
+        Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unknown page metadata version in " + path);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String url = readString(in);
+                String etag = readString(in);
+                String lastModified = readString(in);
+                long revision = in.readLong();
+                long linkHash = in.readLong();
+                String[][] links = new String[in.readInt()][];
+                for (int j = 0; j < links.length; j++) {
+                    links[j] = new String[]{readString(in), readString(in)};
+                }
+                entries.put(url, new Entry(etag, lastModified, revision, linkHash, Arrays.asList(links)));
+            }
+        }
+    }
+
+    // -1 length marks null
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        return length < 0 ? null : new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
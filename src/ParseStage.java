@@ -0,0 +1,97 @@
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CPU stage of a staged crawl: fetching threads hand downloaded bodies to a pool about the size of the core
+ * count and go on with the next fetch, so parsing does not compete over dozens of oversubscribed I/O threads
+ * and no I/O thread waits for a parse. Pages wait for a parse thread in a bounded queue, a fetching thread
+ * blocks only when it is full.
+ */
+final class ParseStage implements AutoCloseable {
+    private final int threads;
+    private final BlockingQueue<Runnable> queue;
+    private final ExecutorService pool;
+    // A parse thread or a place in the queue for every page handed over
+    private final Semaphore slots;
+    private final CrawlMetrics metrics;
+
+    ParseStage(int threads, int queueCapacity, CrawlMetrics metrics) {
+        this.threads = threads;
+        // The slots bound it, a task frees its slot just before its thread takes the next one off the queue
+        this.queue = new LinkedBlockingQueue<>();
+        this.slots = new Semaphore(threads + queueCapacity);
+        this.metrics = metrics;
+        AtomicInteger number = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, task -> {
+            // A page found while parsing waits for an I/O thread, it is never fetched on this one
+            Thread thread = new Thread(() -> {
+                TaskWindow.neverRunInline();
+                task.run();
+            }, "parse-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        metrics.definePool(CrawlMetrics.CPU_POOL, () -> threads);
+    }
+
+    // --parse-threads=N or =cores, 0 (the default) parses on the fetching thread
+    static ParseStage fromArgs(String[] args, CrawlMetrics metrics) {
+        String option = CrawlConfig.option(args, "parse-threads", "0");
+        int threads = "cores".equals(option) ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(option);
+        return threads <= 0 ? null : new ParseStage(threads, 2 * threads, metrics);
+    }
+
+    // Queues the task for a parse thread and returns right away, unless the queue is full
+    <T> CompletableFuture<T> submit(Callable<T> task) {
+        slots.acquireUninterruptibly();
+        long queuedAt = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                long start = System.nanoTime();
+                metrics.recordStage(CrawlMetrics.HANDOFF, start - queuedAt);
+                T value;
+                try {
+                    value = task.call();
+                } catch (Throwable e) {
+                    finished(start);
+                    result.completeExceptionally(e);
+                    return;
+                }
+                finished(start);
+                // Completed after the slot is free, the continuation may queue more work
+                result.complete(value);
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+        return result;
+    }
+
+    private void finished(long start) {
+        metrics.recordBusy(CrawlMetrics.CPU_POOL, System.nanoTime() - start);
+        slots.release();
+    }
+
+    int threads() {
+        return threads;
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        ExecutorMode.shutdown(pool);
+    }
+}
@@ -0,0 +1,56 @@
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the same crawl phased and pipelined with one strategy, checks that both found the same links
+ * and prints the wall-clock time of each.
+ */
+public class PipelineComparison {
+
+    public static void main(String[] args) {
+        String strategyName = CrawlConfig.option(args, "strategy", "thread");
+
+        long phasedStart = System.nanoTime();
+        Map<String, Integer> phasedLinks = linkCounts(run(args, strategyName, false));
+        long phasedMs = (System.nanoTime() - phasedStart) / 1_000_000;
+
+        long pipelinedStart = System.nanoTime();
+        Map<String, Integer> pipelinedLinks = linkCounts(run(args, strategyName, true));
+        long pipelinedMs = (System.nanoTime() - pipelinedStart) / 1_000_000;
+
+        System.out.println("\nPhased:    " + phasedMs + " ms, " + total(phasedLinks) + " links");
+        System.out.println("Pipelined: " + pipelinedMs + " ms, " + total(pipelinedLinks) + " links");
+        System.out.println(phasedLinks.equals(pipelinedLinks)
+                ? "Both modes found the same link set"
+                : "Link sets differ, " + differences(phasedLinks, pipelinedLinks) + " hrefs have different counts");
+    }
+
+    private static List<LinkRecord> run(String[] args, String strategyName, boolean pipelined) {
+        CrawlStrategy strategy = Main.createStrategy(strategyName, args);
+        CrawlEngine engine = CrawlEngine.fromArgs(args, strategy).usePipeline(pipelined);
+        try {
+            return pipelined ? engine.crawlPipelined() : engine.crawl();
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    // Pages finish in a different order in each mode, so links are compared as a multiset of hrefs
+    private static Map<String, Integer> linkCounts(List<LinkRecord> links) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (LinkRecord link : links) {
+            counts.merge(link.targetHref(), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    private static int total(Map<String, Integer> counts) {
+        return counts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    private static long differences(Map<String, Integer> expected, Map<String, Integer> actual) {
+        return expected.keySet().stream().filter(href -> !expected.get(href).equals(actual.get(href))).count()
+                + actual.keySet().stream().filter(href -> !expected.containsKey(href)).count();
+    }
+}
@@ -0,0 +1,107 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetcher decorator that schedules every request through its host's HostScheduler. A slot is held until
+ * the response body is closed, because the host is still serving the page while it is being read.
+ */
+public class PoliteFetcher implements PageFetcher {
+    public static final double DEFAULT_RATE = 50;
+    public static final int DEFAULT_INITIAL_CONCURRENCY = 4;
+
+    private final PageFetcher delegate;
+    private final double requestsPerSecond;
+    private final int maxConcurrency;
+    private final Map<String, HostScheduler> hosts = new ConcurrentHashMap<>();
+
+    public PoliteFetcher(PageFetcher delegate, double requestsPerSecond, int maxConcurrency) {
+        this.delegate = delegate;
+        this.requestsPerSecond = requestsPerSecond;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public static PageFetcher fromArgs(String[] args, PageFetcher delegate) {
+        String rate = CrawlConfig.option(args, "rate", null);
+        if (rate == null) {
+            return delegate;
+        }
+        int maxConcurrency = Integer.parseInt(CrawlConfig.option(args, "host-concurrency",
+                String.valueOf(ExecutorMode.THREAD_POOL_SIZE)));
+        return new PoliteFetcher(delegate, Double.parseDouble(rate), maxConcurrency);
+    }
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        HostScheduler scheduler = schedulerFor(url);
+        scheduler.acquire();
+        long start = System.nanoTime();
+        FetchResponse response;
+        try {
+            response = delegate.fetch(url, headers);
+        } catch (IOException | RuntimeException e) {
+            scheduler.onFailure();
+            throw e;
+        }
+
+        long latency = System.nanoTime() - start;
+        int status = response.statusCode();
+        if (status == 429 || status == 503) {
+            response.close();
+            scheduler.onThrottled(retryAfterSeconds(response));
+            System.err.println("Throttled (" + status + ") by " + scheduler);
+            return new FetchResponse(response.url(), status, response.headers(), InputStream.nullInputStream());
+        }
+        return new FetchResponse(response.url(), status, response.headers(), new FilterInputStream(response.body()) {
+            private boolean released;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!released) {
+                        released = true;
+                        if (status >= 400) {
+                            scheduler.onIgnore();
+                        } else {
+                            scheduler.onSuccess(latency);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private HostScheduler schedulerFor(String url) {
+        String host = URI.create(url).getHost();
+        return hosts.computeIfAbsent(host == null ? "" : host, name -> new HostScheduler(name, requestsPerSecond,
+                Math.max(1, (int) requestsPerSecond), Math.min(DEFAULT_INITIAL_CONCURRENCY, maxConcurrency), maxConcurrency));
+    }
+
+    private static long retryAfterSeconds(FetchResponse response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim());
+        } catch (NumberFormatException e) {
+            // HTTP-date form, back off for a second instead of parsing it
+            return 1;
+        }
+    }
+
+    public Map<String, HostScheduler> hosts() {
+        return hosts;
+    }
+
+    @Override
+    public void close() {
+        hosts.values().forEach(scheduler -> System.out.println("Host " + scheduler));
+        delegate.close();
+    }
+}
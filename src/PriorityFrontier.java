@@ -0,0 +1,218 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Frontier of the best-first crawl: the highest scored url comes out first. At most memoryLimit entries
+ * stay on the heap, when it is full its lower half is sorted and written to a run file. Polling merges the
+ * heap with the heads of the runs, so the order is the same as with an unbounded heap. Not thread-safe,
+ * the crawl loop is its only user.
+ */
+public class PriorityFrontier implements AutoCloseable {
+    public static final int DEFAULT_MEMORY_LIMIT = 100_000;
+    // Runs are merged into one when there are more, each open run holds a file and a read buffer
+    private static final int MAX_RUNS = 32;
+
+    public record Entry(String url, int depth, double score) {
+    }
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator.comparingDouble(Entry::score).reversed();
+
+    private final int memoryLimit;
+    private final Path spillDir;
+    // A temporary directory made by fromArgs is removed on close, one given by the user is left in place
+    private final boolean ownsSpillDir;
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>(BEST_FIRST);
+    // Ordered by each run's head entry
+    private final PriorityQueue<Run> runs = new PriorityQueue<>(Comparator.comparing(Run::head, BEST_FIRST));
+    private long size;
+    private long spilled;
+    private int nextRun;
+
+    public PriorityFrontier(int memoryLimit, Path spillDir) {
+        this(memoryLimit, spillDir, false);
+    }
+
+    private PriorityFrontier(int memoryLimit, Path spillDir, boolean ownsSpillDir) {
+        this.memoryLimit = Math.max(2, memoryLimit);
+        this.spillDir = spillDir;
+        this.ownsSpillDir = ownsSpillDir;
+    }
+
+    // --frontier-memory caps the heap, runs go to --frontier-dir or a temporary directory
+    public static PriorityFrontier fromArgs(String[] args) throws IOException {
+        int memoryLimit = Integer.parseInt(CrawlConfig.option(args, "frontier-memory",
+                String.valueOf(DEFAULT_MEMORY_LIMIT)));
+        String dir = CrawlConfig.option(args, "frontier-dir", null);
+        if (dir == null) {
+            return new PriorityFrontier(memoryLimit, Files.createTempDirectory("frontier"), true);
+        }
+        return new PriorityFrontier(memoryLimit, Files.createDirectories(Path.of(dir)), false);
+    }
+
+    public void offer(String canonicalUrl, int depth, double score) {
+        heap.add(new Entry(canonicalUrl, depth, score));
+        size++;
+        if (heap.size() > memoryLimit) {
+            spill();
+        }
+    }
+
+    // Best entry, null when the frontier is empty
+    public Entry poll() {
+        Run best = runs.peek();
+        if (best == null || (!heap.isEmpty() && BEST_FIRST.compare(heap.peek(), best.head) <= 0)) {
+            Entry entry = heap.poll();
+            if (entry != null) {
+                size--;
+            }
+            return entry;
+        }
+        runs.poll();
+        Entry entry = best.head;
+        if (best.advance()) {
+            runs.add(best);
+        }
+        size--;
+        return entry;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Entries written to disk so far
+    public long spilled() {
+        return spilled;
+    }
+
+    // Keeps the better half in memory, the rest becomes one sorted run
+    private void spill() {
+        List<Entry> entries = new ArrayList<>(heap);
+        entries.sort(BEST_FIRST);
+        heap.clear();
+        int keep = entries.size() / 2;
+        heap.addAll(entries.subList(0, keep));
+        writeRun(entries.subList(keep, entries.size()));
+        if (runs.size() > MAX_RUNS) {
+            mergeRuns();
+        }
+    }
+
+    private void writeRun(List<Entry> entries) {
+        Path file = spillDir.resolve("run-" + nextRun++);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            for (Entry entry : entries) {
+                out.writeDouble(entry.score());
+                out.writeInt(entry.depth());
+                out.writeUTF(entry.url());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill frontier to " + file, e);
+        }
+        spilled += entries.size();
+        Run run = new Run(file);
+        if (run.advance()) {
+            runs.add(run);
+        }
+    }
+
+    // Every run holds one sorted slice, so merging their heads in order yields one sorted run
+    private void mergeRuns() {
+        Path file = spillDir.resolve("run-" + nextRun++);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            Run run;
+            while ((run = runs.poll()) != null) {
+                Entry entry = run.head;
+                out.writeDouble(entry.score());
+                out.writeInt(entry.depth());
+                out.writeUTF(entry.url());
+                if (run.advance()) {
+                    runs.add(run);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot merge frontier runs into " + file, e);
+        }
+        Run run = new Run(file);
+        if (run.advance()) {
+            runs.add(run);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Run run : runs) {
+            run.close();
+        }
+        runs.clear();
+        heap.clear();
+        size = 0;
+        if (!Files.isDirectory(spillDir)) {
+            return;
+        }
+        try (var files = Files.list(spillDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().startsWith("run-")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        if (ownsSpillDir) {
+            Files.deleteIfExists(spillDir);
+        }
+    }
+
+    // Sorted run file read one entry ahead, deleted once it is used up
+    private static final class Run {
+        private final Path file;
+        private final DataInputStream in;
+        private Entry head;
+
+        Run(Path file) {
+            this.file = file;
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read frontier run " + file, e);
+            }
+        }
+
+        Entry head() {
+            return head;
+        }
+
+        boolean advance() {
+            try {
+                double score = in.readDouble();
+                int depth = in.readInt();
+                head = new Entry(in.readUTF(), depth, score);
+                return true;
+            } catch (EOFException e) {
+                close();
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read frontier run " + file, e);
+            }
+        }
+
+        void close() {
+            try {
+                in.close();
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error removing frontier run " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
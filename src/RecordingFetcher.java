@@ -0,0 +1,38 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Fetcher decorator that writes every response it returns to a WARC archive. The body has to be read in
+ * full to be recorded, so streaming extraction still works but no longer stops the download early.
+ */
+public class RecordingFetcher implements PageFetcher {
+    private final PageFetcher delegate;
+    private final WarcWriter writer;
+
+    public RecordingFetcher(PageFetcher delegate, Path archive) throws IOException {
+        this.delegate = delegate;
+        this.writer = new WarcWriter(archive);
+    }
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        try (FetchResponse response = delegate.fetch(url, headers)) {
+            byte[] body = response.body().readAllBytes();
+            writer.writeResponse(url, response, body);
+            return new FetchResponse(response.url(), response.statusCode(), response.headers(),
+                    new ByteArrayInputStream(body));
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing WARC archive: " + e.getMessage());
+        }
+        delegate.close();
+    }
+}
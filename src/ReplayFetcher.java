@@ -0,0 +1,33 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Serves every fetch from a recorded WARC archive instead of the network, so a crawl can be repeated
+ * offline with identical input. Urls missing from the archive are answered with 404.
+ */
+public class ReplayFetcher implements PageFetcher {
+    private final WarcReader reader;
+
+    public ReplayFetcher(Path archive) throws IOException {
+        this.reader = new WarcReader(archive);
+        System.out.println("Replaying " + reader.size() + " urls from " + archive);
+    }
+
+    // Request headers are ignored, the archive holds one response per url
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        FetchResponse response = reader.read(url);
+        return response != null ? response : new FetchResponse(url, 404, Map.of(), InputStream.nullInputStream());
+    }
+
+    @Override
+    public void close() {
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("Error closing WARC archive: " + e.getMessage());
+        }
+    }
+}
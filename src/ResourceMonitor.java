@@ -0,0 +1,55 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples platform thread count and heap usage while a crawl runs. Virtual threads do not show up
+ * in the thread count, which is exactly what the fixed pool and the virtual mode are compared on.
+ */
+public class ResourceMonitor implements AutoCloseable {
+    private static final long SAMPLE_INTERVAL_MS = 50;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final ScheduledExecutorService sampler;
+    private volatile int peakThreads;
+    private volatile long peakHeapBytes;
+
+    public ResourceMonitor() {
+        threads.resetPeakThreadCount();
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resource-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void sample() {
+        peakThreads = Math.max(peakThreads, threads.getThreadCount());
+        peakHeapBytes = Math.max(peakHeapBytes, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    public int peakThreads() {
+        return Math.max(peakThreads, threads.getPeakThreadCount());
+    }
+
+    public long peakHeapBytes() {
+        return peakHeapBytes;
+    }
+
+    @Override
+    public void close() {
+        sample();
+        sampler.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("peak platform threads: %d, peak heap: %.1f MB",
+                peakThreads(), peakHeapBytes() / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,124 @@
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodings of scraped links. Every record is written whole, so a sink can flush between any two of them.
+ */
+public enum ResultFormat {
+    // The numbered "n: href - anchor" lines the crawler has always printed
+    TEXT {
+        @Override
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.write("\nAll scraped links:\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void write(DataOutputStream out, long index, LinkRecord link, String sourceUrl) throws IOException {
+            out.write((index + 1 + ": " + link.targetHref() + " - " + link.anchorText() + "\n")
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+    },
+    // One JSON object per line
+    NDJSON {
+        @Override
+        void write(DataOutputStream out, long index, LinkRecord link, String sourceUrl) throws IOException {
+            StringBuilder line = new StringBuilder(128);
+            line.append("{\"sourceId\":").append(link.sourceId())
+                    .append(",\"depth\":").append(link.depth())
+                    .append(",\"source\":");
+            jsonString(line, sourceUrl);
+            line.append(",\"href\":");
+            jsonString(line, link.targetHref());
+            line.append(",\"anchor\":");
+            jsonString(line, link.anchorText());
+            out.write(line.append("}\n").toString().getBytes(StandardCharsets.UTF_8));
+        }
+    },
+    // RFC 4180 quoting, a header row first
+    CSV {
+        @Override
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.write("source_id,depth,source,href,anchor\r\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void write(DataOutputStream out, long index, LinkRecord link, String sourceUrl) throws IOException {
+            String row = link.sourceId() + "," + link.depth() + "," + csvField(sourceUrl) + "," +
+                    csvField(link.targetHref()) + "," + csvField(link.anchorText()) + "\r\n";
+            out.write(row.getBytes(StandardCharsets.UTF_8));
+        }
+    },
+    // Magic and version, then per link: int source id, short depth and three length-prefixed UTF-8 strings
+    BINARY {
+        @Override
+        void writeHeader(DataOutputStream out) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeShort(1);
+        }
+
+        @Override
+        void write(DataOutputStream out, long index, LinkRecord link, String sourceUrl) throws IOException {
+            out.writeInt(link.sourceId());
+            out.writeShort(link.depth());
+            binaryString(out, sourceUrl);
+            binaryString(out, link.targetHref());
+            binaryString(out, link.anchorText());
+        }
+    };
+
+    // "WLNK"
+    static final int MAGIC = 0x574C4E4B;
+
+    void writeHeader(DataOutputStream out) throws IOException {
+    }
+
+    abstract void write(DataOutputStream out, long index, LinkRecord link, String sourceUrl) throws IOException;
+
+    private static void jsonString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // -1 marks null
+    private static void binaryString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
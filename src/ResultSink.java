@@ -0,0 +1,39 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+
+/**
+ * Where scraped links go as soon as their depth is done, instead of piling up until the crawl ends.
+ * Implementations must accept writes from several threads.
+ */
+public interface ResultSink extends AutoCloseable {
+
+    void write(LinkRecord link, String sourceUrl);
+
+    // Links written out so far, a sink that buffers counts them once they reached its output
+    long written();
+
+    // Waits until every accepted link is written out
+    @Override
+    void close();
+
+    // --output=path writes to a file instead of stdout, --format picks text, ndjson, csv or binary.
+    // Returns null when neither is given, the engine then prints text to stdout when it runs.
+    static ResultSink fromArgs(String[] args) {
+        String output = CrawlConfig.option(args, "output", null);
+        String format = CrawlConfig.option(args, "format", null);
+        if (output == null && format == null) {
+            return null;
+        }
+        ResultFormat resultFormat = format == null ? ResultFormat.TEXT : ResultFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        if (output == null) {
+            return new AsyncResultSink(resultFormat, System.out, false);
+        }
+        try {
+            return new AsyncResultSink(resultFormat, new FileOutputStream(output), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open " + output, e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter: the n-th retry waits a random time between zero and
+ * base * 2^n, capped at maxDelay, so retries of many failed pages do not hit the host in lockstep.
+ */
+public class RetryPolicy {
+    public static final int DEFAULT_RETRIES = 3;
+    public static final long DEFAULT_BASE_DELAY_MS = 200;
+    public static final long DEFAULT_MAX_DELAY_MS = 10_000;
+
+    private final int maxRetries;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    public RetryPolicy(int maxRetries, long baseDelayMs, long maxDelayMs) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public static RetryPolicy fromArgs(String[] args) {
+        return new RetryPolicy(
+                Integer.parseInt(CrawlConfig.option(args, "retries", String.valueOf(DEFAULT_RETRIES))),
+                Long.parseLong(CrawlConfig.option(args, "retry-base-ms", String.valueOf(DEFAULT_BASE_DELAY_MS))),
+                Long.parseLong(CrawlConfig.option(args, "retry-max-ms", String.valueOf(DEFAULT_MAX_DELAY_MS))));
+    }
+
+    public int maxRetries() {
+        return maxRetries;
+    }
+
+    // retry is 0 for the first retry after the initial attempt
+    public long delayMs(int retry) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(retry, 30));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // Statuses that say "try again later" rather than "this page does not exist"
+    public static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode == 500 || statusCode == 502 || statusCode == 503 || statusCode == 504;
+    }
+
+    // Timeouts and dropped connections. An unknown host, a malformed url or a content type the fetcher
+    // refuses fails the same way every time. HttpClient reports resets and early closes as plain IOExceptions.
+    public static boolean isTransient(IOException e) {
+        return e instanceof SocketTimeoutException || e instanceof HttpTimeoutException
+                || e instanceof SocketException || e instanceof EOFException || e.getClass() == IOException.class;
+    }
+}
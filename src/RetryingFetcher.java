@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fetcher decorator that retries transient failures (timeouts, dropped connections, 429 and 5xx) with
+ * jittered exponential backoff, and fails fast through a per-host circuit breaker once a host keeps failing.
+ * Other errors are thrown at once and do not count against the host.
+ */
+public class RetryingFetcher implements PageFetcher {
+    private final PageFetcher delegate;
+    private final RetryPolicy policy;
+    private final int failureThreshold;
+    private final long cooldownSeconds;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public RetryingFetcher(PageFetcher delegate, RetryPolicy policy, int failureThreshold, long cooldownSeconds) {
+        this.delegate = delegate;
+        this.policy = policy;
+        this.failureThreshold = failureThreshold;
+        this.cooldownSeconds = cooldownSeconds;
+    }
+
+    public static PageFetcher fromArgs(String[] args, PageFetcher delegate) {
+        RetryPolicy policy = RetryPolicy.fromArgs(args);
+        int threshold = Integer.parseInt(CrawlConfig.option(args, "breaker-threshold",
+                String.valueOf(CircuitBreaker.DEFAULT_FAILURE_THRESHOLD)));
+        long cooldown = Long.parseLong(CrawlConfig.option(args, "breaker-cooldown-s",
+                String.valueOf(CircuitBreaker.DEFAULT_COOLDOWN_SECONDS)));
+        return new RetryingFetcher(delegate, policy, threshold, cooldown);
+    }
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        CircuitBreaker breaker = breakerFor(url);
+        IOException lastFailure = null;
+
+        for (int attempt = 0; attempt <= policy.maxRetries(); attempt++) {
+            // Checked before the backoff, an open circuit fails the retry now rather than after the sleep
+            if (!breaker.allowRequest()) {
+                throw new CircuitOpenException(url);
+            }
+            boolean recorded = false;
+            try {
+                if (attempt > 0) {
+                    sleep(policy.delayMs(attempt - 1));
+                }
+                try {
+                    FetchResponse response = delegate.fetch(url, headers);
+                    if (!RetryPolicy.isRetryable(response.statusCode())) {
+                        // A 404 still means the host is answering
+                        recorded = true;
+                        breaker.onSuccess();
+                        return response;
+                    }
+                    response.close();
+                    lastFailure = new FetchException(url, response.statusCode());
+                } catch (IOException e) {
+                    if (!RetryPolicy.isTransient(e)) {
+                        throw e;
+                    }
+                    lastFailure = e;
+                }
+                recorded = true;
+                breaker.onFailure();
+            } finally {
+                // Interrupted while waiting, a permanent error or a RuntimeException: says nothing about the host
+                if (!recorded) {
+                    breaker.release();
+                }
+            }
+        }
+        throw lastFailure;
+    }
+
+    private CircuitBreaker breakerFor(String url) {
+        String host = URI.create(url).getHost();
+        return breakers.computeIfAbsent(host == null ? "" : host,
+                name -> new CircuitBreaker(name, failureThreshold, cooldownSeconds));
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        breakers.values().stream()
+                .filter(breaker -> breaker.timesOpened() > 0)
+                .forEach(breaker -> System.out.println("Circuit " + breaker));
+        delegate.close();
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Benchmarks every crawl strategy against a SyntheticWiki served in-process, so runs need no network and
+ * repeat exactly. Each strategy gets warmup iterations that are thrown away and measured iterations that
+ * report pages/s, fetch latency percentiles and allocation rate.
+ *
+ * The allocation figures are for the whole JVM, the wiki's request handlers included: they run on virtual
+ * threads, whose allocations the JVM only counts for the carrier threads they share with a virtual-thread
+ * crawl. They compare strategies against the same wiki, they are not what a crawl allocates on its own.
+ *
+ * Example: --strategies=sequential,thread,future --wiki-latency-ms=30 --iterations=5 --mode=pipelined
+ */
+public class ScraperBenchmark {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        List<String> strategies = Arrays.asList(
+                CrawlConfig.option(args, "strategies", "sequential,thread,future,stream").split(","));
+        int warmup = Integer.parseInt(CrawlConfig.option(args, "warmup", "1"));
+        int iterations = Integer.parseInt(CrawlConfig.option(args, "iterations", "3"));
+
+        try (SyntheticWiki wiki = SyntheticWiki.fromArgs(args)) {
+            // The seed option is put first so it wins over anything passed on the command line
+            String[] crawlArgs = Stream.concat(Stream.of("--seed=" + wiki.pageUrl(0)), Arrays.stream(args))
+                    .toArray(String[]::new);
+            System.out.println("Synthetic wiki: " + wiki);
+            System.out.println("Crawl: " + CrawlConfig.fromArgs(crawlArgs));
+
+            List<String> rows = new ArrayList<>();
+            for (String strategy : strategies) {
+                for (int i = 0; i < warmup; i++) {
+                    runOnce(crawlArgs, strategy);
+                }
+                List<Result> results = new ArrayList<>();
+                for (int i = 0; i < iterations; i++) {
+                    results.add(runOnce(crawlArgs, strategy));
+                }
+                rows.add(summarize(strategy, results));
+            }
+
+            System.out.printf("%n%-12s %16s %9s %9s %9s %12s %12s%n",
+                    "strategy", "pages/s", "p50 ms", "p90 ms", "p99 ms", "alloc MB/s", "KB/page");
+            rows.forEach(System.out::println);
+            System.out.println("Allocation includes the synthetic wiki's request handlers");
+        }
+    }
+
+    private record Result(long pages, double seconds, long p50, long p90, long p99, long allocatedBytes) {
+        double pagesPerSecond() {
+            return pages / seconds;
+        }
+    }
+
+    private static Result runOnce(String[] args, String strategyName) {
+        LatencyRecorder latencies = new LatencyRecorder();
+        CrawlStrategy strategy = Main.createStrategy(strategyName, args);
+        CrawlEngine engine = CrawlEngine.fromArgs(args, strategy);
+        // Wraps the fetcher the engine made from the same arguments, a second one would never be closed
+        engine.useFetcher(new TimingFetcher(engine.fetcher(), latencies));
+        boolean pipelined = "pipelined".equals(CrawlConfig.option(args, "mode", "phased"));
+
+        System.gc();
+        long allocatedBefore = THREADS.getTotalThreadAllocatedBytes();
+        long start = System.nanoTime();
+        try {
+            if (pipelined) {
+                engine.crawlPipelined();
+            } else {
+                engine.crawl();
+            }
+        } finally {
+            engine.shutdown();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long allocated = THREADS.getTotalThreadAllocatedBytes() - allocatedBefore;
+        return new Result(engine.metrics().pagesFetched(), seconds,
+                latencies.percentile(50), latencies.percentile(90), latencies.percentile(99), allocated);
+    }
+
+    private static String summarize(String strategy, List<Result> results) {
+        double mean = results.stream().mapToDouble(Result::pagesPerSecond).average().orElse(0);
+        double deviation = Math.sqrt(results.stream()
+                .mapToDouble(result -> Math.pow(result.pagesPerSecond() - mean, 2))
+                .average().orElse(0));
+        double seconds = results.stream().mapToDouble(Result::seconds).sum();
+        long allocated = results.stream().mapToLong(Result::allocatedBytes).sum();
+        long pages = results.stream().mapToLong(Result::pages).sum();
+        return String.format("%-12s %9.1f +-%5.1f %9.1f %9.1f %9.1f %12.1f %12.1f",
+                strategy, mean, deviation,
+                results.stream().mapToLong(Result::p50).average().orElse(0) / 1e6,
+                results.stream().mapToLong(Result::p90).average().orElse(0) / 1e6,
+                results.stream().mapToLong(Result::p99).average().orElse(0) / 1e6,
+                allocated / seconds / (1024 * 1024),
+                pages == 0 ? 0 : allocated / 1024.0 / pages);
+    }
+}
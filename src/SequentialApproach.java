@@ -0,0 +1,20 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+public class SequentialApproach implements CrawlStrategy {
+
+    @Override
+    public String name() {
+        return "SequentialApproach";
+    }
+
+    @Override
+    public <T, R> List<R> mapAll(List<T> inputs, Function<T, R> task) {
+        List<R> results = new ArrayList<>();
+        for (T input : inputs) {
+            results.add(task.apply(input));
+        }
+        return results;
+    }
+}
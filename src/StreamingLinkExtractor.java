@@ -0,0 +1,76 @@
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Link extraction with jsoup's StreamParser. Elements are handed over as soon as they are closed and removed
+ * right after, so the tree never grows beyond the chain of currently open elements. Inside a link they stay
+ * until the link itself closes, its anchor text needs them. Once the page's link
+ * limit is reached the parser stops and the rest of the response is never read.
+ */
+public final class StreamingLinkExtractor {
+    private StreamingLinkExtractor() {
+    }
+
+    public static List<LinkRecord> extractRecords(Reader html, String baseUri, int limit,
+                                                  int sourceId, int depth, Consumer<String> titleConsumer) {
+        return extractRecords(html, baseUri, limit, sourceId, depth, titleConsumer, LinkFilter.DEFAULT);
+    }
+
+    public static List<LinkRecord> extractRecords(Reader html, String baseUri, int limit, int sourceId, int depth,
+                                                  Consumer<String> titleConsumer, LinkFilter filter) {
+        List<LinkRecord> records = new ArrayList<>();
+        if (limit == 0) {
+            return records;
+        }
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(html, baseUri)) {
+            Iterator<Element> elements = parser.iterator();
+            while (elements.hasNext()) {
+                Element element = elements.next();
+                String name = element.normalName();
+                if (name.equals("a")) {
+                    String href = element.attr("href");
+                    if (!href.isEmpty() && filter.accepts(href) && inContent(element)) {
+                        records.add(new LinkRecord(sourceId, href, element.text(), depth));
+                        if (records.size() == limit) {
+                            parser.stop();
+                            break;
+                        }
+                    }
+                } else if (name.equals("title") && titleConsumer != null) {
+                    titleConsumer.accept(element.text());
+                }
+                if (!inLink(element)) {
+                    element.remove();
+                }
+            }
+        }
+        return records;
+    }
+
+    // Children of an open <a> are closed first, removing them would cut the link's text short
+    private static boolean inLink(Element element) {
+        for (Element parent = element.parent(); parent != null; parent = parent.parent()) {
+            if (parent.normalName().equals("a")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The same scope as the "div.mw-body-content a[href]" query, checked on the still-open ancestors
+    private static boolean inContent(Element link) {
+        for (Element parent = link.parent(); parent != null; parent = parent.parent()) {
+            if (parent.normalName().equals("div") && parent.hasClass("mw-body-content")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
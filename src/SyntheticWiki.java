@@ -0,0 +1,289 @@
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * In-process HTTP server serving a generated wiki, so crawls can be measured offline and repeated exactly.
+ * Page /wiki/Strona_N links to fanOut other pages picked by a Random seeded with N, is padded to roughly
+ * pageBytes, and is answered after latencyMs plus up to jitterMs, again derived from N. Pages carry an ETag
+ * and answer If-None-Match with 304 Not Modified.
+ *
+ * /w/api.php stands in for the MediaWiki API's action=query&prop=links, with the same links per page,
+ * pllimit counted over all titles of a request and plcontinue tokens, each request answered after latencyMs.
+ */
+public final class SyntheticWiki implements AutoCloseable {
+    private final int pages;
+    private final int fanOut;
+    private final int pageBytes;
+    private final int latencyMs;
+    private final int jitterMs;
+    private final long seed;
+    private final HttpServer server;
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicReferenceArray<byte[]> rendered;
+
+    public SyntheticWiki(int pages, int fanOut, int pageBytes, int latencyMs, int jitterMs, long seed) throws IOException {
+        this.pages = pages;
+        this.fanOut = fanOut;
+        this.pageBytes = pageBytes;
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.seed = seed;
+        this.rendered = new AtomicReferenceArray<>(pages);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/wiki/", exchange -> {
+            try (exchange) {
+                int page = pageNumber(exchange.getRequestURI().getPath());
+                if (page < 0) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                sleep(latencyMs + (jitterMs == 0 ? 0 : new Random(seed ^ page * 31L).nextInt(jitterMs + 1)));
+                // A page only depends on the seed and its number, so that is its validator
+                String etag = "\"" + seed + "-" + page + "\"";
+                exchange.getResponseHeaders().add("ETag", etag);
+                if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                byte[] body = render(page);
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.createContext("/w/api.php", exchange -> {
+            try (exchange) {
+                sleep(latencyMs);
+                byte[] body = apiAnswer(queryParameters(exchange.getRequestURI().getRawQuery()))
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    public static SyntheticWiki fromArgs(String[] args) throws IOException {
+        return new SyntheticWiki(
+                Integer.parseInt(CrawlConfig.option(args, "wiki-pages", "5000")),
+                Integer.parseInt(CrawlConfig.option(args, "wiki-links", "40")),
+                Integer.parseInt(CrawlConfig.option(args, "wiki-page-kb", "60")) * 1024,
+                Integer.parseInt(CrawlConfig.option(args, "wiki-latency-ms", "20")),
+                Integer.parseInt(CrawlConfig.option(args, "wiki-jitter-ms", "20")),
+                Long.parseLong(CrawlConfig.option(args, "wiki-seed", "42")));
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String pageUrl(int page) {
+        return baseUrl() + "/wiki/Strona_" + page;
+    }
+
+    private int pageNumber(String path) {
+        if (!path.startsWith("/wiki/Strona_")) {
+            return -1;
+        }
+        return titleNumber(path.substring("/wiki/Strona_".length()));
+    }
+
+    private int titleNumber(String number) {
+        try {
+            int page = Integer.parseInt(number);
+            return page >= 0 && page < pages ? page : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Pages are rendered once, so the server's own cost stays out of the measurement
+    private byte[] render(int page) {
+        byte[] body = rendered.get(page);
+        if (body != null) {
+            return body;
+        }
+        int[] targets = links(page);
+        Random random = new Random(seed - page);
+        StringBuilder html = new StringBuilder(pageBytes + 1024);
+        html.append("<!DOCTYPE html><html><head><title>Strona ").append(page).append(" – Wikipedia</title></head><body>");
+        html.append("<div id=\"mw-navigation\"><a href=\"").append(pageUrl(0)).append("\">Strona główna</a></div>");
+        html.append("<div id=\"bodyContent\" class=\"vector-body mw-body-content\"><div class=\"mw-parser-output\">");
+        int paragraphBytes = Math.max(0, pageBytes / Math.max(1, fanOut) - 80);
+        for (int i = 0; i < fanOut; i++) {
+            int target = targets[i];
+            html.append("<p>");
+            appendFiller(html, random, paragraphBytes / 2);
+            // Host-relative like MediaWiki's own links, the crawler resolves them against this page
+            html.append(" <a href=\"/wiki/Strona_").append(target).append("\" title=\"Strona ").append(target)
+                    .append("\">Strona ").append(target).append("</a> ");
+            if (i % 10 == 9) {
+                html.append("<a href=\"/wiki/Plik:Obraz_").append(i).append(".jpg\">obraz</a>");
+            }
+            appendFiller(html, random, paragraphBytes / 2);
+            html.append("</p>");
+        }
+        html.append("</div></div><div id=\"footer\"><a href=\"").append(pageUrl(1)).append("\">O Wikipedii</a></div>");
+        html.append("</body></html>");
+        body = html.toString().getBytes(StandardCharsets.UTF_8);
+        rendered.set(page, body);
+        return body;
+    }
+
+    // Targets of a page's links in page order, duplicates included, drawn apart from the filler text
+    private int[] links(int page) {
+        Random random = new Random(seed + page);
+        int[] targets = new int[fanOut];
+        for (int i = 0; i < targets.length; i++) {
+            targets[i] = random.nextInt(pages);
+        }
+        return targets;
+    }
+
+    private static Map<String, String> queryParameters(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null) {
+            for (String parameter : rawQuery.split("&")) {
+                int equals = parameter.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(parameter.substring(0, equals),
+                            URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    // Answer in the shape of formatversion=2: links sorted by title without duplicates, plcontinue is "page|link"
+    private String apiAnswer(Map<String, String> parameters) {
+        if (!"query".equals(parameters.get("action")) || !"links".equals(parameters.get("prop"))) {
+            return "{\"error\":{\"code\":\"badparams\",\"info\":\"Only action=query&prop=links is served\"}}";
+        }
+        String limitValue = parameters.getOrDefault("pllimit", "10");
+        int limit = "max".equals(limitValue) ? 500 : Math.min(500, Integer.parseInt(limitValue));
+        String[] cont = parameters.getOrDefault("plcontinue", "0|0").split("\\|");
+        int firstPage = Integer.parseInt(cont[0]);
+        int firstLink = Integer.parseInt(cont[1]);
+
+        StringBuilder normalized = new StringBuilder();
+        StringBuilder answer = new StringBuilder(4096);
+        List<String> requested = List.of(parameters.getOrDefault("titles", "").split("\\|"));
+        TreeMap<Integer, String> found = new TreeMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String title : requested) {
+            String spaced = title.replace('_', ' ');
+            if (!spaced.equals(title)) {
+                normalized.append(normalized.length() == 0 ? "" : ",").append("{\"from\":\"").append(title)
+                        .append("\",\"to\":\"").append(spaced).append("\"}");
+            }
+            int page = spaced.startsWith("Strona ") ? titleNumber(spaced.substring(7)) : -1;
+            if (page < 0) {
+                missing.add(spaced);
+            } else {
+                found.put(page, spaced);
+            }
+        }
+
+        StringBuilder pageList = new StringBuilder();
+        int returned = 0;
+        String next = null;
+        for (Map.Entry<Integer, String> entry : found.entrySet()) {
+            int page = entry.getKey();
+            pageList.append(pageList.length() == 0 ? "" : ",").append("{\"pageid\":").append(page + 1)
+                    .append(",\"ns\":0,\"title\":\"").append(entry.getValue()).append('"');
+            if (page >= firstPage && next == null) {
+                TreeSet<String> titles = new TreeSet<>();
+                for (int target : links(page)) {
+                    titles.add("Strona " + target);
+                }
+                List<String> sorted = new ArrayList<>(titles);
+                int from = page == firstPage ? firstLink : 0;
+                int to = Math.min(sorted.size(), from + limit - returned);
+                if (to > from) {
+                    pageList.append(",\"links\":[");
+                    for (int i = from; i < to; i++) {
+                        pageList.append(i == from ? "" : ",").append("{\"ns\":0,\"title\":\"")
+                                .append(sorted.get(i)).append("\"}");
+                    }
+                    pageList.append(']');
+                }
+                returned += to - from;
+                if (to < sorted.size()) {
+                    next = page + "|" + to;
+                }
+            }
+            pageList.append('}');
+        }
+        for (String title : missing) {
+            pageList.append(pageList.length() == 0 ? "" : ",").append("{\"ns\":0,\"title\":\"").append(title)
+                    .append("\",\"missing\":true}");
+        }
+
+        answer.append('{');
+        if (next != null) {
+            answer.append("\"continue\":{\"plcontinue\":\"").append(next).append("\",\"continue\":\"||\"},");
+        } else {
+            answer.append("\"batchcomplete\":true,");
+        }
+        answer.append("\"query\":{");
+        if (normalized.length() > 0) {
+            answer.append("\"normalized\":[").append(normalized).append("],");
+        }
+        return answer.append("\"pages\":[").append(pageList).append("]}}").toString();
+    }
+
+    private static void appendFiller(StringBuilder html, Random random, int bytes) {
+        int start = html.length();
+        while (html.length() - start < bytes) {
+            int wordLength = 2 + random.nextInt(9);
+            for (int i = 0; i < wordLength; i++) {
+                html.append((char) ('a' + random.nextInt(26)));
+            }
+            html.append(' ');
+        }
+    }
+
+    private static void sleep(int millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d pages, %d links/page, ~%d KB/page, latency %d+%d ms, seed %d",
+                pages, fanOut, pageBytes / 1024, latencyMs, jitterMs, seed);
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many tasks a strategy has handed to its executor and not seen finish. Without it every page of a
+ * depth, or every link of a pipelined crawl, sits in the executor's unbounded queue at once, or parks a
+ * virtual thread with its stack while it waits for a connection.
+ *
+ * Tasks started from other tasks wait in a backlog of at most BACKLOG_PER_SLOT per slot. Past that the
+ * submitting thread runs the task itself, which stops it from producing more until the task is done. In a
+ * pipelined crawl a page only submits pages one level deeper, so these nested runs go at most maxDepth deep.
+ * Threads marked with neverRunInline, the parse stage's, queue past the cap instead: a fetch must not run on
+ * a CPU thread, and waiting there could wait on the fetches that wait for a parse thread.
+ */
+final class TaskWindow {
+    private final Executor executor;
+    private final Semaphore permits;
+    private final int size;
+    // Pipelined tasks beyond the window wait here as plain runnables until a running one finishes
+    private final Queue<Runnable> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger backlogSize = new AtomicInteger();
+    private final int backlogLimit;
+
+    static final int BACKLOG_PER_SLOT = 4;
+    private static final ThreadLocal<Boolean> NO_INLINE = new ThreadLocal<>();
+
+    TaskWindow(Executor executor, int size) {
+        this.executor = executor;
+        this.size = size;
+        this.permits = new Semaphore(size);
+        this.backlogLimit = size * BACKLOG_PER_SLOT;
+    }
+
+    // Called by a thread that must never run a task it submits, e.g. a parse thread
+    static void neverRunInline() {
+        NO_INLINE.set(Boolean.TRUE);
+    }
+
+    // Blocks the caller until a slot is free, for the thread that hands out the pages of a depth
+    <R> CompletableFuture<R> submit(Supplier<R> task) {
+        permits.acquireUninterruptibly();
+        try {
+            return CompletableFuture.supplyAsync(task, executor).whenComplete((result, e) -> finished());
+        } catch (RuntimeException e) {
+            finished();
+            throw e;
+        }
+    }
+
+    // Never blocks, a task started from a running task must not wait for a slot held by its own caller
+    void execute(Runnable task) {
+        if (permits.tryAcquire()) {
+            start(task);
+            return;
+        }
+        if (backlogSize.incrementAndGet() > backlogLimit && NO_INLINE.get() == null) {
+            backlogSize.decrementAndGet();
+            task.run();
+            return;
+        }
+        backlog.add(task);
+        // A slot freed between the failed tryAcquire and the add would otherwise leave the task waiting
+        drain();
+    }
+
+    private void start(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    finished();
+                }
+            });
+        } catch (RuntimeException e) {
+            finished();
+            throw e;
+        }
+    }
+
+    private void finished() {
+        permits.release();
+        drain();
+    }
+
+    private void drain() {
+        while (!backlog.isEmpty() && permits.tryAcquire()) {
+            Runnable next = backlog.poll();
+            if (next == null) {
+                permits.release();
+                return;
+            }
+            backlogSize.decrementAndGet();
+            start(next);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int backlog() {
+        return backlogSize.get();
+    }
+}
@@ -0,0 +1,28 @@
+import java.io.IOException;
+import java.util.Map;
+
+// Fetcher decorator recording how long each fetch takes until the response headers arrive
+public class TimingFetcher implements PageFetcher {
+    private final PageFetcher delegate;
+    private final LatencyRecorder latencies;
+
+    public TimingFetcher(PageFetcher delegate, LatencyRecorder latencies) {
+        this.delegate = delegate;
+        this.latencies = latencies;
+    }
+
+    @Override
+    public FetchResponse fetch(String url, Map<String, String> headers) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.fetch(url, headers);
+        } finally {
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
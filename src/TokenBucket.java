@@ -0,0 +1,55 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token bucket rate limiter. Tokens refill continuously at the configured rate up to the burst size;
+ * acquire() reserves a token and sleeps outside the lock until that token is due.
+ */
+public class TokenBucket {
+    private final double permitsPerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos;
+
+    public TokenBucket(double permitsPerSecond, double burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("rate must be positive and burst at least 1");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+    }
+
+    public void acquire() {
+        long waitNanos = reserve();
+        while (waitNanos > 0) {
+            long deadline = System.nanoTime() + waitNanos;
+            LockSupport.parkNanos(waitNanos);
+            waitNanos = deadline - System.nanoTime();
+        }
+    }
+
+    // Takes one token, possibly going into debt, and returns how long the caller has to wait for it
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        refill(now);
+        tokens -= 1;
+        long tokenWait = tokens >= 0 ? 0 : (long) (-tokens / permitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+        return Math.max(tokenWait, pausedUntilNanos - now);
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1) * permitsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    // Nothing is handed out before the pause ends, e.g. when the server sent Retry-After
+    public synchronized void pause(long nanos) {
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + nanos);
+    }
+
+    public double permitsPerSecond() {
+        return permitsPerSecond;
+    }
+}
@@ -0,0 +1,135 @@
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Turns the many spellings of one article url into a single canonical form, so that "/wiki/Java#Historia"
+ * on a pl.wikipedia.org page, "//pl.m.wikipedia.org/wiki/Java" and "https://pl.wikipedia.org/w/index.php?title=Java"
+ * all count as the same page.
+ */
+public final class UrlCanonicalizer {
+    private static final String HEX = "0123456789ABCDEF";
+
+    private UrlCanonicalizer() {
+    }
+
+    // Returns null for links that are not http(s) pages, e.g. mailto: or javascript:, and for relative links
+    public static String canonicalize(String href) {
+        return canonicalize(href, null);
+    }
+
+    // Relative links are resolved against base, the url of the page they were found on
+    public static String canonicalize(String href, String base) {
+        if (href == null) {
+            return null;
+        }
+        String url = href.trim();
+        int fragment = url.indexOf('#');
+        if (fragment >= 0) {
+            url = url.substring(0, fragment);
+        }
+        if (url.isEmpty()) {
+            return null;
+        }
+
+        if (!url.regionMatches(true, 0, "http://", 0, 7) && !url.regionMatches(true, 0, "https://", 0, 8)) {
+            url = resolve(url, base);
+            if (url == null) {
+                return null;
+            }
+        }
+
+        String scheme = url.substring(0, url.indexOf("://")).toLowerCase(Locale.ROOT);
+        int schemeEnd = scheme.length() + 3;
+        int pathStart = url.indexOf('/', schemeEnd);
+        if (pathStart < 0) {
+            pathStart = url.length();
+        }
+        String host = url.substring(schemeEnd, pathStart).toLowerCase(Locale.ROOT);
+        if (host.endsWith(":443") || host.endsWith(":80")) {
+            host = host.substring(0, host.lastIndexOf(':'));
+        }
+        host = host.replace(".m.wikipedia.org", ".wikipedia.org");
+        String path = pathStart < url.length() ? url.substring(pathStart) : "/";
+
+        String title = titleOf(path);
+        if (title != null) {
+            path = "/wiki/" + encodeTitle(title);
+        }
+        // Wikipedia serves everything over https, the plain http variant is the same page
+        if (host.endsWith(".wikipedia.org")) {
+            scheme = "https";
+        }
+        return scheme + "://" + host + path;
+    }
+
+    // Protocol-relative, host-relative and path-relative links, null for other schemes or without a base
+    private static String resolve(String href, String base) {
+        if (base == null) {
+            return null;
+        }
+        int schemeEnd = base.indexOf("://");
+        if (schemeEnd < 0) {
+            return null;
+        }
+        if (href.startsWith("//")) {
+            return base.substring(0, schemeEnd + 1) + href;
+        }
+        int pathStart = base.indexOf('/', schemeEnd + 3);
+        String origin = pathStart < 0 ? base : base.substring(0, pathStart);
+        if (href.startsWith("/")) {
+            return origin + href;
+        }
+        int colon = href.indexOf(':');
+        int slash = href.indexOf('/');
+        if (colon >= 0 && (slash < 0 || colon < slash)) {
+            return null;
+        }
+        try {
+            return URI.create(base).resolve(href).toString();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Article title of /wiki/Title or /w/index.php?title=Title, null for any other path
+    static String titleOf(String path) {
+        String raw = null;
+        if (path.startsWith("/wiki/") && path.indexOf('?') < 0) {
+            raw = path.substring(6);
+        } else if (path.startsWith("/w/index.php?title=") && path.indexOf('&') < 0) {
+            raw = path.substring(19);
+        }
+        if (raw == null || raw.isEmpty()) {
+            return null;
+        }
+        String title;
+        try {
+            title = URLDecoder.decode(raw.replace("+", "%2B"), StandardCharsets.UTF_8).replace(' ', '_');
+        } catch (IllegalArgumentException e) {
+            title = raw.replace(' ', '_');
+        }
+        // MediaWiki capitalizes the first letter of every title
+        int first = title.codePointAt(0);
+        return new StringBuilder(title.length())
+                .appendCodePoint(Character.toUpperCase(first))
+                .append(title, Character.charCount(first), title.length())
+                .toString();
+    }
+
+    // Percent-encodes a title the way MediaWiki writes it in /wiki/ links
+    static String encodeTitle(String title) {
+        StringBuilder encoded = new StringBuilder(title.length() + 16);
+        for (byte b : title.getBytes(StandardCharsets.UTF_8)) {
+            int c = b & 0xFF;
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || "-_.~:/(),'!*@$;".indexOf(c) >= 0) {
+                encoded.append((char) c);
+            } else {
+                encoded.append('%').append(HEX.charAt(c >> 4)).append(HEX.charAt(c & 0xF));
+            }
+        }
+        return encoded.toString();
+    }
+}
@@ -0,0 +1,31 @@
+public final class UrlFingerprint {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private UrlFingerprint() {
+    }
+
+    /**
+     * 64-bit FNV-1a over the url's chars followed by the MurmurHash3 finalizer. With 64 bits the chance of
+     * two different urls colliding stays below one in a million up to several million urls. Never returns 0,
+     * which the fingerprint tables use to mark an empty slot.
+     */
+    public static long of(String url) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < url.length(); i++) {
+            hash ^= url.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash;
+    }
+
+    public static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
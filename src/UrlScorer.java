@@ -0,0 +1,70 @@
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Priority of a discovered link for the best-first crawl, higher is fetched first. Scorers add up, so
+ * --score=indegree,depth ranks by how often a url is linked and breaks ties towards shallower pages.
+ */
+@FunctionalInterface
+public interface UrlScorer {
+
+    double score(String canonicalUrl, String anchorText, int depth, int inDegree);
+
+    default UrlScorer plus(UrlScorer other) {
+        return (url, anchor, depth, inDegree) -> score(url, anchor, depth, inDegree)
+                + other.score(url, anchor, depth, inDegree);
+    }
+
+    // Pages many crawled pages link to, log scaled so a few hubs do not drown everything else
+    static UrlScorer inDegree() {
+        return (url, anchor, depth, inDegree) -> Math.log(1 + inDegree) / Math.log(2);
+    }
+
+    static UrlScorer shallow() {
+        return (url, anchor, depth, inDegree) -> -depth;
+    }
+
+    // One point per term found in the anchor text, terms are matched ignoring case
+    static UrlScorer anchorMatches(String... terms) {
+        String[] lowered = Arrays.stream(terms)
+                .map(term -> term.trim().toLowerCase(Locale.ROOT))
+                .filter(term -> !term.isEmpty())
+                .toArray(String[]::new);
+        return (url, anchor, depth, inDegree) -> {
+            if (anchor == null || anchor.isEmpty()) {
+                return 0;
+            }
+            String text = anchor.toLowerCase(Locale.ROOT);
+            int matches = 0;
+            for (String term : lowered) {
+                if (text.contains(term)) {
+                    matches++;
+                }
+            }
+            return matches;
+        };
+    }
+
+    // --score=indegree,depth,anchor with the anchor terms in --score-terms=a,b
+    static UrlScorer fromArgs(String[] args) {
+        UrlScorer scorer = null;
+        for (String name : CrawlConfig.option(args, "score", "indegree,depth").split(",")) {
+            UrlScorer next;
+            switch (name.trim()) {
+                case "indegree":
+                    next = inDegree();
+                    break;
+                case "depth":
+                    next = shallow();
+                    break;
+                case "anchor":
+                    next = anchorMatches(CrawlConfig.option(args, "score-terms", "").split(","));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown score: " + name);
+            }
+            scorer = scorer == null ? next : scorer.plus(next);
+        }
+        return scorer;
+    }
+}
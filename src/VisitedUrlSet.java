@@ -0,0 +1,54 @@
+/**
+ * Global set of canonical urls already scheduled for fetching. Urls are kept only as 64-bit fingerprints,
+ * optionally fronted by a Bloom filter that lets contains() answer "never seen" without taking a lock.
+ * add() always takes the lock of the fingerprint's segment, a new url has to be inserted there and a seen one
+ * may need its depth lowered.
+ */
+public class VisitedUrlSet {
+    public static final int DEFAULT_EXPECTED_URLS = 1 << 16;
+
+    private final FingerprintSet fingerprints;
+    private final BloomFilter bloomFront;
+
+    public VisitedUrlSet(int expectedUrls, boolean bloomFront) {
+        this.fingerprints = new FingerprintSet(expectedUrls);
+        this.bloomFront = bloomFront ? new BloomFilter(expectedUrls, 0.01) : null;
+    }
+
+    public static VisitedUrlSet fromArgs(String[] args) {
+        int expected = Integer.parseInt(CrawlConfig.option(args, "expected-urls", String.valueOf(DEFAULT_EXPECTED_URLS)));
+        boolean bloom = Boolean.parseBoolean(CrawlConfig.option(args, "bloom", "false"));
+        return new VisitedUrlSet(expected, bloom);
+    }
+
+    // Returns true when the url is seen for the first time
+    public boolean add(String canonicalUrl) {
+        return add(canonicalUrl, 0);
+    }
+
+    // Returns true when the url is new or was only seen deeper, so the pipelined crawl can correct its depth
+    public boolean add(String canonicalUrl, int depth) {
+        long fingerprint = UrlFingerprint.of(canonicalUrl);
+        // A url the filter may already hold has all its bits set, only a new one has bits to write
+        if (bloomFront != null && !bloomFront.mightContain(fingerprint)) {
+            bloomFront.put(fingerprint);
+        }
+        return fingerprints.add(fingerprint, depth);
+    }
+
+    public boolean contains(String canonicalUrl) {
+        long fingerprint = UrlFingerprint.of(canonicalUrl);
+        if (bloomFront != null && !bloomFront.mightContain(fingerprint)) {
+            return false;
+        }
+        return fingerprints.contains(fingerprint);
+    }
+
+    public long size() {
+        return fingerprints.size();
+    }
+
+    public long memoryBytes() {
+        return fingerprints.memoryBytes() + (bloomFront == null ? 0 : bloomFront.memoryBytes());
+    }
+}
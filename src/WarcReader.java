@@ -0,0 +1,185 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Read side of a WARC archive written by WarcWriter. The archive is memory-mapped in regions and an
+ * offset index maps every url to its record, so a lookup is a hash probe plus parsing the record headers;
+ * the body is handed out as a view of the mapped file without copying it.
+ */
+public class WarcReader implements Closeable {
+    private static final long REGION_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private final Map<String, long[]> offsets = new HashMap<>();
+
+    public WarcReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        long size = channel.size();
+        for (long start = 0; start < size; start += REGION_SIZE) {
+            regions.add(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start)));
+        }
+        Path indexPath = WarcWriter.indexPath(path);
+        if (Files.exists(indexPath)) {
+            loadIndex(indexPath);
+        } else {
+            scan(size);
+        }
+    }
+
+    private void loadIndex(Path indexPath) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t");
+                if (fields.length == 3) {
+                    offsets.put(fields[0], new long[]{Long.parseLong(fields[1]), Long.parseLong(fields[2])});
+                }
+            }
+        }
+    }
+
+    // Archives without an index file are indexed by walking the record headers once
+    private void scan(long size) throws IOException {
+        long offset = 0;
+        while (offset < size) {
+            ByteBuffer record = slice(offset, Math.min(64 * 1024, size - offset));
+            Map<String, String> headers = readHeaders(record, offset);
+            long length = record.position() + Long.parseLong(headers.get("content-length")) + 4;
+            offsets.put(headers.getOrDefault("warc-x-requested-uri", headers.get("warc-target-uri")),
+                    new long[]{offset, length});
+            offsets.put(headers.get("warc-target-uri"), new long[]{offset, length});
+            offset += length;
+        }
+    }
+
+    // Returns null when the url was never recorded
+    public FetchResponse read(String url) throws IOException {
+        long[] location = offsets.get(url);
+        if (location == null) {
+            return null;
+        }
+        ByteBuffer record = slice(location[0], location[1]);
+        Map<String, String> warcHeaders = readHeaders(record, location[0]);
+        int blockEnd = record.position() + Integer.parseInt(warcHeaders.get("content-length"));
+
+        String statusLine = readLine(record);
+        int statusCode = Integer.parseInt(statusLine.split(" ")[1]);
+        Map<String, List<String>> httpHeaders = new LinkedHashMap<>();
+        String line;
+        while (!(line = readLine(record)).isEmpty()) {
+            int colon = line.indexOf(':');
+            // A recorded response is replayed as leniently as a client reads it, a line with no field is skipped
+            if (colon < 0) {
+                continue;
+            }
+            httpHeaders.computeIfAbsent(line.substring(0, colon).trim(), name -> new ArrayList<>())
+                    .add(line.substring(colon + 1).trim());
+        }
+        ByteBuffer body = record.slice(record.position(), blockEnd - record.position());
+        return new FetchResponse(warcHeaders.get("warc-target-uri"), statusCode, httpHeaders, new ByteBufferInputStream(body));
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+
+    // A record inside one region is a zero-copy view, one spanning two regions is copied
+    private ByteBuffer slice(long offset, long length) {
+        int region = (int) (offset / REGION_SIZE);
+        int start = (int) (offset % REGION_SIZE);
+        if (start + length <= regions.get(region).capacity()) {
+            return regions.get(region).slice(start, (int) length);
+        }
+        ByteBuffer copy = ByteBuffer.allocate((int) length);
+        long position = offset;
+        while (copy.hasRemaining()) {
+            MappedByteBuffer source = regions.get((int) (position / REGION_SIZE));
+            int from = (int) (position % REGION_SIZE);
+            int count = Math.min(copy.remaining(), source.capacity() - from);
+            copy.put(source.slice(from, count));
+            position += count;
+        }
+        return copy.flip();
+    }
+
+    // offset only names the record in errors
+    private static Map<String, String> readHeaders(ByteBuffer record, long offset) throws IOException {
+        String version = readLine(record);
+        if (!version.startsWith("WARC/")) {
+            throw new IOException("Not a WARC record: " + version);
+        }
+        Map<String, String> headers = new HashMap<>();
+        String line;
+        while (!(line = readLine(record)).isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                throw new IOException("Malformed header line in the WARC record at offset " + offset + ": " + line);
+            }
+            headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private static String readLine(ByteBuffer buffer) {
+        int start = buffer.position();
+        while (buffer.hasRemaining() && buffer.get() != '\n') {
+            // scan to the end of the line
+        }
+        int end = buffer.position() - 1;
+        if (end > start && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        byte[] line = new byte[Math.max(0, end - start)];
+        buffer.get(start, line);
+        return new String(line, StandardCharsets.UTF_8);
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Appends WARC/1.0 response records to an archive. Next to the archive an index file gets one
+ * "url TAB offset TAB length" line per record, so replay can find records without scanning.
+ */
+public class WarcWriter implements Closeable {
+    private final FileChannel archive;
+    private final Writer index;
+
+    public WarcWriter(Path path) throws IOException {
+        this.archive = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.index = Files.newBufferedWriter(indexPath(path), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    public static Path indexPath(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".idx");
+    }
+
+    /**
+     * @param requestedUrl url the crawler asked for, indexed so replay finds it by the same key
+     * @param response     status and headers of the response, the body is given separately
+     * @param body         decoded body, Content-Encoding and Content-Length are rewritten to match it
+     */
+    public synchronized void writeResponse(String requestedUrl, FetchResponse response, byte[] body) throws IOException {
+        ByteArrayOutputStream http = new ByteArrayOutputStream(body.length + 1024);
+        http.writeBytes(("HTTP/1.1 " + response.statusCode() + " " + reason(response.statusCode()) + "\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1));
+        for (Map.Entry<String, List<String>> header : response.headers().entrySet()) {
+            String name = header.getKey();
+            if (name == null || name.startsWith(":") || name.equalsIgnoreCase("Content-Encoding")
+                    || name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                http.writeBytes((name + ": " + value + "\r\n").getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        http.writeBytes(("Content-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        http.writeBytes(body);
+
+        String header = "WARC/1.0\r\n" +
+                "WARC-Type: response\r\n" +
+                "WARC-Record-ID: <urn:uuid:" + UUID.randomUUID() + ">\r\n" +
+                "WARC-Date: " + Instant.now().truncatedTo(ChronoUnit.SECONDS) + "\r\n" +
+                "WARC-Target-URI: " + response.url() + "\r\n" +
+                "WARC-X-Requested-URI: " + requestedUrl + "\r\n" +
+                "Content-Type: application/http; msgtype=response\r\n" +
+                "Content-Length: " + http.size() + "\r\n\r\n";
+        byte[] headerBytes = header.getBytes(StandardCharsets.UTF_8);
+        byte[] trailer = "\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+        long offset = archive.size();
+        ByteBuffer[] record = {ByteBuffer.wrap(headerBytes), ByteBuffer.wrap(http.toByteArray()), ByteBuffer.wrap(trailer)};
+        long length = headerBytes.length + http.size() + trailer.length;
+        long written = 0;
+        while (written < length) {
+            written += archive.write(record);
+        }
+        index.write(requestedUrl + "\t" + offset + "\t" + length + "\n");
+        if (!requestedUrl.equals(response.url())) {
+            index.write(response.url() + "\t" + offset + "\t" + length + "\n");
+        }
+    }
+
+    private static String reason(int statusCode) {
+        switch (statusCode) {
+            case 200:
+                return "OK";
+            case 301:
+                return "Moved Permanently";
+            case 304:
+                return "Not Modified";
+            case 404:
+                return "Not Found";
+            default:
+                return "Status";
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.close();
+        archive.close();
+    }
+}